@@ -0,0 +1,38 @@
+package com.company.MultiModule.Repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCsvImporterBenchmark {
+
+    private static final String CSV_FILE = "data/bench-import.csv";
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(Paths.get(CSV_FILE));
+    }
+
+    @Test
+    void importThroughput() throws IOException {
+        int rows = 1_000_000;
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(CSV_FILE), StandardCharsets.UTF_8)) {
+            out.write("id,isbn,title,author,category,available\n");
+            for (int i = 0; i < rows; i++) {
+                out.write(i + ",isbn-" + i + ",Title " + i + ",Author,Category,true\n");
+            }
+        }
+        ParallelCsvImporter.importFile(CSV_FILE, 6, fields -> fields); // warm up
+
+        ParallelCsvImporter.Result<String[]> result = ParallelCsvImporter.importFile(CSV_FILE, 6, fields -> fields);
+
+        assertEquals(rows, result.rows().size());
+        System.out.printf("Parallel import of %,d rows: %,.0f rows/sec%n", rows, result.rowsPerSecond());
+    }
+}
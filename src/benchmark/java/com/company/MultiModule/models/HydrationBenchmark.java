@@ -0,0 +1,109 @@
+package com.company.MultiModule.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rough comparison of the two ways the load path can restore persisted ids:
+ * building with a random id and overwriting it by reflection (the old path) versus passing
+ * the id to the builder. Timings are printed rather than asserted so the test is not flaky.
+ */
+class HydrationBenchmark {
+
+    private static final int ROWS = 200_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void studentHydration() throws Exception {
+        String[] ids = persistedIds();
+
+        long reflection = Long.MAX_VALUE;
+        long builder = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            reflection = Math.min(reflection, time(() -> hydrateStudentsWithReflection(ids)));
+            builder = Math.min(builder, time(() -> hydrateStudentsWithBuilder(ids)));
+        }
+
+        System.out.printf("Student hydration of %,d rows: reflection %d ms, builder id %d ms%n",
+                ROWS, reflection / 1_000_000, builder / 1_000_000);
+        assertEquals(ids[ROWS - 1], hydrateStudentsWithBuilder(ids).getId());
+        assertEquals(ids[ROWS - 1], hydrateStudentsWithReflection(ids).getId());
+    }
+
+    @Test
+    void bookHydration() throws Exception {
+        String[] ids = persistedIds();
+
+        long reflection = Long.MAX_VALUE;
+        long builder = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            reflection = Math.min(reflection, time(() -> hydrateBooksWithReflection(ids)));
+            builder = Math.min(builder, time(() -> hydrateBooksWithBuilder(ids)));
+        }
+
+        System.out.printf("Book hydration of %,d rows: reflection %d ms, builder id %d ms%n",
+                ROWS, reflection / 1_000_000, builder / 1_000_000);
+        assertEquals(ids[ROWS - 1], hydrateBooksWithBuilder(ids).getId());
+        assertEquals(ids[ROWS - 1], hydrateBooksWithReflection(ids).getId());
+    }
+
+    private interface Run {
+        Object run() throws Exception;
+    }
+
+    private static long time(Run run) throws Exception {
+        long start = System.nanoTime();
+        assertNotNull(run.run());
+        return System.nanoTime() - start;
+    }
+
+    private static String[] persistedIds() {
+        String[] ids = new String[ROWS];
+        for (int i = 0; i < ROWS; i++) ids[i] = UUID.randomUUID().toString();
+        return ids;
+    }
+
+    private static User hydrateStudentsWithReflection(String[] ids) throws Exception {
+        User last = null;
+        for (String id : ids) {
+            last = new Student.StudentBuilder()
+                    .name("n").email("e").password(new char[]{'p'}).borrowLimit(3).build();
+            Field idField = User.class.getDeclaredField("id");
+            idField.setAccessible(true);
+            idField.set(last, id);
+        }
+        return last;
+    }
+
+    private static User hydrateStudentsWithBuilder(String[] ids) {
+        User last = null;
+        for (String id : ids) {
+            last = new Student.StudentBuilder()
+                    .id(id).name("n").email("e").password(new char[]{'p'}).borrowLimit(3).build();
+        }
+        return last;
+    }
+
+    private static Book hydrateBooksWithReflection(String[] ids) throws Exception {
+        Book last = null;
+        for (String id : ids) {
+            last = new Book.Builder<>().isbn("i").title("t").author("a").category("c").build();
+            Field idField = Book.class.getDeclaredField("id");
+            idField.setAccessible(true);
+            idField.set(last, id);
+        }
+        return last;
+    }
+
+    private static Book hydrateBooksWithBuilder(String[] ids) {
+        Book last = null;
+        for (String id : ids) {
+            last = new Book.Builder<>().id(id).isbn("i").title("t").author("a").category("c").build();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,26 @@
+package com.company.MultiModule.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionTrieBenchmark {
+
+    private final CompletionTrie trie = new CompletionTrie();
+
+    @Test
+    void completionLatency() {
+        for (int i = 0; i < 200_000; i++) {
+            trie.add("Title " + Integer.toString(i, 36) + " volume " + (i % 7), 1 + i % 13);
+        }
+        for (int i = 0; i < 50_000; i++) trie.complete("title " + Integer.toString(i % 1000, 36), 5); // warm up
+
+        int queries = 100_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            assertFalse(trie.complete("title " + Integer.toString(i % 1296, 36), 5).isEmpty());
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        System.out.printf("Completion over 200,000 titles: %.2f us per lookup%n", (double) micros / queries);
+    }
+}
@@ -0,0 +1,42 @@
+package com.company.MultiModule.services;
+
+import com.company.MultiModule.models.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookServiceBenchmark {
+
+    private static final String CATEGORY = "Stress Testing";
+    private final BookService bookService = BookService.getInstance();
+
+    @AfterEach
+    void cleanup() {
+        bookService.clearTestData();
+    }
+
+    /**
+     * Cost of an uncontended claim and release of a copy, the borrow fast path; printed rather than asserted.
+     */
+    @Test
+    void uncontendedClaim() {
+        Book book = new Book.Builder<>().title("Claimed").author("Nobody").category(CATEGORY).isbn("TEST-CLAIM").build();
+        bookService.addBook(book);
+        Book stored = bookService.findById(book.getId());
+
+        int rounds = 1_000_000;
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                assertTrue(bookService.tryClaim(stored));
+                assertFalse(bookService.tryClaim(stored));
+                bookService.release(stored);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("Uncontended claim + failed claim + release: %d ns%n", best / rounds);
+        assertTrue(stored.isAvailable());
+    }
+}
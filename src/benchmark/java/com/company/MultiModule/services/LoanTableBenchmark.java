@@ -0,0 +1,50 @@
+package com.company.MultiModule.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanTableBenchmark {
+
+    /**
+     * Rough heap comparison with the map of hash sets it replaces; printed rather than asserted.
+     */
+    @Test
+    void footprint() {
+        int userCount = 100_000;
+        String[] users = new String[userCount];
+        String[][] books = new String[userCount][3];
+        for (int u = 0; u < userCount; u++) {
+            users[u] = UUID.randomUUID().toString();
+            for (int b = 0; b < 3; b++) books[u][b] = UUID.randomUUID().toString();
+        }
+
+        long before = usedHeap();
+        Map<String, Set<String>> map = new HashMap<>();
+        for (int u = 0; u < userCount; u++) {
+            // Loading from disk gives every row its own strings
+            for (String book : books[u]) map.computeIfAbsent(new String(users[u]), k -> new HashSet<>()).add(new String(book));
+        }
+        long mapBytes = usedHeap() - before;
+
+        before = usedHeap();
+        LoanTable table = new LoanTable();
+        for (int u = 0; u < userCount; u++) {
+            for (String book : books[u]) table.add(new String(users[u]), new String(book));
+        }
+        long tableBytes = usedHeap() - before;
+
+        System.out.printf("Footprint of %,d loans as loaded: map of sets %d bytes/loan, loan table %d bytes/loan%n",
+                userCount * 3, mapBytes / (userCount * 3), tableBytes / (userCount * 3));
+        assertEquals(userCount * 3, table.size());
+        map.clear();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
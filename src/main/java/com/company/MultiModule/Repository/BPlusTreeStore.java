@@ -0,0 +1,432 @@
+package com.company.MultiModule.Repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Single-file, page-based B+tree mapping String keys to String values.
+ * <p>
+ * Page 0 holds the header (magic, root page, page count); every other page is one tree node.
+ * Nodes are kept in an LRU page cache and only pages that changed are written back on
+ * {@link #flush()}, so updating one record costs one page write rather than a file rewrite.
+ * Deletes do not rebalance: emptied leaves simply stay in the leaf chain.
+ * There is no write-ahead log, so a crash in the middle of a flush can leave a partial update.
+ */
+public class BPlusTreeStore implements Closeable {
+
+    public static final int PAGE_SIZE = 4096;
+    // Keeps every entry well below a quarter page so a split always yields two valid nodes
+    public static final int MAX_ENTRY_BYTES = 1000;
+
+    private static final int MAGIC = 0x4C425450; // "LBTP"
+    private static final int VERSION = 1;
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+    private static final int NODE_HEADER_BYTES = 1 + Integer.BYTES + Integer.BYTES; // type, count, next leaf
+
+    private final FileChannel channel;
+    private final LinkedHashMap<Integer, Node> cache;
+    private int rootPage;
+    private int pageCount;
+    private boolean headerDirty;
+    private int pagesWrittenByLastFlush;
+
+    private static final class Node {
+        final int page;
+        final boolean leaf;
+        final List<String> keys = new ArrayList<>();
+        final List<String> values;    // leaf only
+        final List<Integer> children; // internal only, keys.size() + 1 entries
+        int next = -1;                // next leaf in key order
+        boolean dirty;
+
+        Node(int page, boolean leaf) {
+            this.page = page;
+            this.leaf = leaf;
+            this.values = leaf ? new ArrayList<>() : null;
+            this.children = leaf ? null : new ArrayList<>();
+        }
+    }
+
+    private record Split(String key, int rightPage) {}
+
+    /**
+     * Opens (or creates) a store, caching at most {@code cachePages} pages in memory (16 at least).
+     */
+    public BPlusTreeStore(String filePath, int cachePages) throws IOException {
+        int capacity = Math.max(cachePages, 16);
+        Path path = Paths.get(filePath);
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Node> eldest) {
+                if (size() <= capacity) return false;
+                if (eldest.getValue().dirty) {
+                    try {
+                        writeNode(eldest.getValue());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return true;
+            }
+        };
+
+        if (channel.size() == 0) {
+            pageCount = 1;
+            rootPage = allocate(true).page;
+            flush();
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES + Integer.BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Not a B+tree store: " + filePath);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported B+tree store version " + version);
+            rootPage = header.getInt();
+            pageCount = header.getInt();
+        }
+    }
+
+    public synchronized String get(String key) throws IOException {
+        try {
+            Node leaf = findLeaf(key);
+            int idx = Collections.binarySearch(leaf.keys, key);
+            return idx >= 0 ? leaf.values.get(idx) : null;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Inserts or replaces a value. Changes reach the file on the next {@link #flush()}.
+     */
+    public synchronized void put(String key, String value) throws IOException {
+        checkEntry(key, value);
+        try {
+            Split split = insert(node(rootPage), key, value);
+            if (split != null) {
+                Node root = allocate(false);
+                root.keys.add(split.key());
+                root.children.add(rootPage);
+                root.children.add(split.rightPage());
+                rootPage = root.page;
+                headerDirty = true;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Throws if the entry is too large to store, so callers can validate a batch before changing anything.
+     */
+    public static void checkEntry(String key, String value) throws IOException {
+        int entryBytes = utf8Length(key) + utf8Length(value);
+        if (entryBytes > MAX_ENTRY_BYTES) {
+            throw new IOException("Entry of " + entryBytes + " bytes exceeds the " + MAX_ENTRY_BYTES + " byte limit");
+        }
+    }
+
+    public synchronized boolean delete(String key) throws IOException {
+        try {
+            Node leaf = findLeaf(key);
+            int idx = Collections.binarySearch(leaf.keys, key);
+            if (idx < 0) return false;
+            leaf.keys.remove(idx);
+            leaf.values.remove(idx);
+            markDirty(leaf);
+            return true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Visits every entry whose key starts with the prefix, in key order.
+     */
+    public synchronized void scan(String prefix, BiConsumer<String, String> consumer) throws IOException {
+        try {
+            Node leaf = findLeaf(prefix);
+            int idx = Collections.binarySearch(leaf.keys, prefix);
+            if (idx < 0) idx = -(idx + 1);
+            while (true) {
+                for (; idx < leaf.keys.size(); idx++) {
+                    String key = leaf.keys.get(idx);
+                    if (!key.startsWith(prefix)) return;
+                    consumer.accept(key, leaf.values.get(idx));
+                }
+                if (leaf.next < 0) return;
+                leaf = node(leaf.next);
+                idx = 0;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Whether any key starts with the prefix. Stops at the first key at or after it instead of scanning the entries.
+     */
+    public synchronized boolean containsPrefix(String prefix) throws IOException {
+        try {
+            Node leaf = findLeaf(prefix);
+            int idx = Collections.binarySearch(leaf.keys, prefix);
+            if (idx < 0) idx = -(idx + 1);
+            // Emptied leaves stay in the chain, so that key can be a few leaves further on
+            while (idx >= leaf.keys.size()) {
+                if (leaf.next < 0) return false;
+                leaf = node(leaf.next);
+                idx = 0;
+            }
+            return leaf.keys.get(idx).startsWith(prefix);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes every changed page (and the header if the root or page count moved), then forces the file.
+     */
+    public synchronized void flush() throws IOException {
+        int written = 0;
+        for (Node node : cache.values()) {
+            if (node.dirty) {
+                writeNode(node);
+                written++;
+            }
+        }
+        if (headerDirty) {
+            ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rootPage).putInt(pageCount);
+            header.clear();
+            writeFully(header, 0);
+            headerDirty = false;
+            written++;
+        }
+        channel.force(false);
+        pagesWrittenByLastFlush = written;
+    }
+
+    synchronized int pagesWrittenByLastFlush() {
+        return pagesWrittenByLastFlush;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        flush();
+        channel.close();
+    }
+
+    // --- tree operations ---
+
+    private Node findLeaf(String key) {
+        Node node = node(rootPage);
+        while (!node.leaf) {
+            node = node(node.children.get(childIndex(node, key)));
+        }
+        return node;
+    }
+
+    private static int childIndex(Node internal, String key) {
+        int idx = Collections.binarySearch(internal.keys, key);
+        return idx >= 0 ? idx + 1 : -(idx + 1);
+    }
+
+    private Split insert(Node node, String key, String value) {
+        if (node.leaf) {
+            int idx = Collections.binarySearch(node.keys, key);
+            if (idx >= 0) {
+                node.values.set(idx, value);
+            } else {
+                node.keys.add(-(idx + 1), key);
+                node.values.add(-(idx + 1), value);
+            }
+            markDirty(node);
+            return encodedSize(node) > PAGE_SIZE ? splitLeaf(node) : null;
+        }
+
+        int child = childIndex(node, key);
+        Split split = insert(node(node.children.get(child)), key, value);
+        if (split == null) return null;
+
+        node.keys.add(child, split.key());
+        node.children.add(child + 1, split.rightPage());
+        markDirty(node);
+        return encodedSize(node) > PAGE_SIZE ? splitInternal(node) : null;
+    }
+
+    private Split splitLeaf(Node node) {
+        int mid = splitPoint(node);
+        Node right = allocate(true);
+        moveTail(node.keys, right.keys, mid);
+        moveTail(node.values, right.values, mid);
+        right.next = node.next;
+        node.next = right.page;
+        markDirty(node);
+        markDirty(right);
+        return new Split(right.keys.get(0), right.page);
+    }
+
+    private Split splitInternal(Node node) {
+        int mid = Math.min(Math.max(splitPoint(node), 1), node.keys.size() - 2);
+        String promoted = node.keys.get(mid);
+        Node right = allocate(false);
+        moveTail(node.keys, right.keys, mid + 1);
+        moveTail(node.children, right.children, mid + 1);
+        node.keys.remove(mid);
+        markDirty(node);
+        markDirty(right);
+        return new Split(promoted, right.page);
+    }
+
+    // First key index of the right half, chosen so both halves carry about the same number of bytes
+    private static int splitPoint(Node node) {
+        int total = encodedSize(node);
+        int running = NODE_HEADER_BYTES;
+        for (int i = 0; i < node.keys.size(); i++) {
+            running += entrySize(node, i);
+            if (running >= total / 2) return Math.max(1, Math.min(i + 1, node.keys.size() - 1));
+        }
+        return node.keys.size() / 2;
+    }
+
+    private static <T> void moveTail(List<T> from, List<T> to, int start) {
+        List<T> tail = from.subList(start, from.size());
+        to.addAll(tail);
+        tail.clear();
+    }
+
+    // --- pages ---
+
+    private Node allocate(boolean leaf) {
+        Node node = new Node(pageCount++, leaf);
+        headerDirty = true;
+        markDirty(node);
+        return node;
+    }
+
+    // Re-inserting keeps a modified node cached even if it was evicted while the caller held it
+    private void markDirty(Node node) {
+        node.dirty = true;
+        cache.put(node.page, node);
+    }
+
+    private Node node(int page) {
+        Node node = cache.get(page);
+        if (node != null) return node;
+        try {
+            node = readNode(page);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        cache.put(page, node);
+        return node;
+    }
+
+    private Node readNode(int page) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        long position = (long) page * PAGE_SIZE;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+        buffer.flip();
+
+        byte type = buffer.get();
+        if (type != LEAF && type != INTERNAL) throw new IOException("Corrupt page " + page);
+        Node node = new Node(page, type == LEAF);
+        int count = buffer.getInt();
+        node.next = buffer.getInt();
+        if (node.leaf) {
+            for (int i = 0; i < count; i++) {
+                node.keys.add(readString(buffer));
+                node.values.add(readString(buffer));
+            }
+        } else {
+            node.children.add(buffer.getInt());
+            for (int i = 0; i < count; i++) {
+                node.keys.add(readString(buffer));
+                node.children.add(buffer.getInt());
+            }
+        }
+        return node;
+    }
+
+    private void writeNode(Node node) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        buffer.put(node.leaf ? LEAF : INTERNAL);
+        buffer.putInt(node.keys.size());
+        buffer.putInt(node.next);
+        if (node.leaf) {
+            for (int i = 0; i < node.keys.size(); i++) {
+                writeString(buffer, node.keys.get(i));
+                writeString(buffer, node.values.get(i));
+            }
+        } else {
+            buffer.putInt(node.children.get(0));
+            for (int i = 0; i < node.keys.size(); i++) {
+                writeString(buffer, node.keys.get(i));
+                buffer.putInt(node.children.get(i + 1));
+            }
+        }
+        buffer.clear();
+        writeFully(buffer, (long) node.page * PAGE_SIZE);
+        node.dirty = false;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int encodedSize(Node node) {
+        int size = NODE_HEADER_BYTES + (node.leaf ? 0 : Integer.BYTES);
+        for (int i = 0; i < node.keys.size(); i++) {
+            size += entrySize(node, i);
+        }
+        return size;
+    }
+
+    private static int entrySize(Node node, int i) {
+        int key = Short.BYTES + utf8Length(node.keys.get(i));
+        return node.leaf
+                ? key + Short.BYTES + utf8Length(node.values.get(i))
+                : key + Integer.BYTES;
+    }
+
+    private static void writeString(ByteBuffer buffer, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) length++;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else length += 3;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,98 @@
+package com.company.MultiModule.Repository;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Keeps every table in one {@link BPlusTreeStore} file ({@code library.db}).
+ * Each row is stored as its encoded fields under the key {@code <table>\u0001<first column>\u0002<n>},
+ * where n counts earlier rows with the same first column (empty for the first one), so rows of a table
+ * are contiguous and ordered by their id. A write only deletes the keys that disappeared and puts the
+ * rows whose value changed; a changed flag rewrites one entry in its leaf, which costs one page write.
+ */
+public class BTreeStorageEngine implements StorageEngine {
+
+    private static final char TABLE_SEPARATOR = '\u0001';
+    private static final char REPEAT_SEPARATOR = '\u0002';
+    private static final int CACHE_PAGES = Integer.getInteger("library.btree.cachePages", 1024);
+
+    private final String dataDir;
+    private BPlusTreeStore store;
+
+    public BTreeStorageEngine(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    @Override
+    public String name() {
+        return "btree";
+    }
+
+    @Override
+    public synchronized boolean exists(String table) {
+        try {
+            return store().containsPrefix(prefixOf(table));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void read(String table, Consumer<String[]> consumer) throws IOException {
+        String prefix = prefixOf(table);
+        // Files written before rows moved into the value kept the encoded row in the key
+        store().scan(prefix, (key, value) -> consumer.accept(CsvStorageEngine.decode(
+                value.isEmpty() ? key.substring(prefix.length()) : value)));
+    }
+
+    /**
+     * Streams the rows, keeping only their keys and the rows that changed. Every entry is checked
+     * against the size limit before the first page is touched, so a rejected write leaves the table as it was.
+     */
+    @Override
+    public synchronized void write(String table, String[] columns, int rowCount, RowWriter writer) throws IOException {
+        String prefix = prefixOf(table);
+        BPlusTreeStore tree = store();
+        Set<String> keys = new HashSet<>(rowCount * 4 / 3 + 1);
+        Map<String, Integer> repeats = new HashMap<>();
+        Map<String, String> changed = new LinkedHashMap<>();
+        writer.writeTo(fields -> {
+            String key = keyOf(prefix, fields[0], keys, repeats);
+            String row = CsvStorageEngine.encode(fields);
+            BPlusTreeStore.checkEntry(key, row);
+            if (!row.equals(tree.get(key))) changed.put(key, row);
+        });
+
+        List<String> removed = new ArrayList<>();
+        tree.scan(prefix, (key, value) -> {
+            if (!keys.contains(key)) removed.add(key);
+        });
+
+        for (String key : removed) tree.delete(key);
+        for (Map.Entry<String, String> row : changed.entrySet()) tree.put(row.getKey(), row.getValue());
+        tree.flush();
+    }
+
+    // Adds and returns the next free key for a row whose first column is id
+    private static String keyOf(String prefix, String id, Set<String> keys, Map<String, Integer> repeats) {
+        String base = prefix + id + REPEAT_SEPARATOR;
+        if (keys.add(base)) return base;
+
+        int n = repeats.getOrDefault(base, 1);
+        String key;
+        while (!keys.add(key = base + String.format("%08x", n))) n++;
+        repeats.put(base, n + 1);
+        return key;
+    }
+    private BPlusTreeStore store() throws IOException {
+        if (store == null) {
+            store = new BPlusTreeStore(dataDir + "/library.db", CACHE_PAGES);
+        }
+        return store;
+    }
+
+    private static String prefixOf(String table) {
+        return table + TABLE_SEPARATOR;
+    }
+}
@@ -0,0 +1,243 @@
+package com.company.MultiModule.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact read-only table of string records, laid out as
+ * <pre>
+ *   header       magic, version, fieldCount, recordCount, sharedFields, poolOffset   (24 bytes)
+ *   offset table recordCount * fieldCount ints, each pointing into the pool (-1 for null)
+ *   string pool  [int length][UTF-8 bytes] entries, identical strings stored once
+ * </pre>
+ * Files are mapped rather than read, and a field is only decoded when it is asked for.
+ */
+public class BinarySnapshot {
+
+    private static final int MAGIC = 0x4C42534E; // "LBSN"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int NULL_OFFSET = -1;
+    private static final int POOL_BUFFER_SIZE = 1 << 16;
+    // Rows seen before deciding whether deduplicating a field pays off
+    private static final int DEDUP_SAMPLE_ROWS = 1024;
+
+    /**
+     * Pushes records into a snapshot being written.
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(String... fields) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordWriter {
+        void writeTo(RecordSink sink) throws IOException;
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int fieldCount;
+    private final int recordCount;
+    private final int sharedFields;
+    private final long poolOffset;
+    private final Map<Integer, String> shared = new HashMap<>();
+
+    private BinarySnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getShort(4));
+        }
+        this.fieldCount = buffer.getShort(6);
+        this.recordCount = buffer.getInt(8);
+        this.sharedFields = buffer.getInt(12);
+        this.poolOffset = buffer.getLong(16);
+    }
+
+    /**
+     * Maps an existing snapshot file.
+     */
+    public static BinarySnapshot open(String filePath) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB: " + filePath);
+            }
+            return new BinarySnapshot(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    public static boolean exists(String filePath) {
+        return Files.exists(Paths.get(filePath));
+    }
+
+    /**
+     * Writes a snapshot of {@code recordCount} records with {@code fieldCount} fields each,
+     * storing repeated values only once for every field where that turns out to pay off.
+     */
+    public static void save(String filePath, int fieldCount, int recordCount, RecordWriter writer) throws IOException {
+        save(filePath, fieldCount, recordCount, -1, writer);
+    }
+
+    /**
+     * Writes a snapshot, considering for deduplication only the fields whose bit is set in {@code sharedFields}.
+     * A candidate field that is mostly distinct over the first rows (ids, titles) stops being deduplicated,
+     * since it would only grow the dedup map. The fields that stayed shared are recorded in the header.
+     * The pool is streamed to disk; only the offset table and the dedup maps stay in memory.
+     */
+    public static void save(String filePath, int fieldCount, int recordCount, int sharedFields,
+                            RecordWriter writer) throws IOException {
+        Path path = Paths.get(filePath);
+        Files.createDirectories(path.getParent());
+        Path tempFile = Files.createTempFile(path.getParent(), "temp-", ".bin");
+
+        try (FileChannel ch = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            long poolStart = HEADER_SIZE + (long) recordCount * fieldCount * Integer.BYTES;
+            int[] offsets = new int[recordCount * fieldCount];
+            List<Map<String, Integer>> pooled = new ArrayList<>(fieldCount);
+            for (int f = 0; f < fieldCount; f++) {
+                pooled.add((sharedFields & (1 << f)) != 0 ? new HashMap<>() : null);
+            }
+            ByteBuffer pool = ByteBuffer.allocate(POOL_BUFFER_SIZE);
+            long[] poolEnd = {poolStart};   // logical end, including what is still buffered
+            long[] flushed = {poolStart};   // physical end on disk
+            int[] written = {0};
+
+            writer.writeTo(fields -> {
+                if (fields.length != fieldCount) {
+                    throw new IOException("Expected " + fieldCount + " fields but got " + fields.length);
+                }
+                if (written[0] == recordCount) {
+                    throw new IOException("More records than the declared " + recordCount);
+                }
+                for (int f = 0; f < fieldCount; f++) {
+                    String value = fields[f];
+                    int slot = written[0] * fieldCount + f;
+                    if (value == null) {
+                        offsets[slot] = NULL_OFFSET;
+                        continue;
+                    }
+                    Map<String, Integer> dedup = pooled.get(f);
+                    Integer existing = dedup != null ? dedup.get(value) : null;
+                    if (existing == null) {
+                        long relative = poolEnd[0] - poolStart;
+                        if (relative > Integer.MAX_VALUE) throw new IOException("String pool exceeds 2 GB");
+                        existing = (int) relative;
+
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        int needed = Integer.BYTES + bytes.length;
+                        if (pool.remaining() < needed) {
+                            pool.flip();
+                            flushed[0] = writeFully(ch, pool, flushed[0]);
+                            pool.clear();
+                        }
+                        if (pool.remaining() < needed) {
+                            ByteBuffer big = ByteBuffer.allocate(needed);
+                            big.putInt(bytes.length).put(bytes).flip();
+                            flushed[0] = writeFully(ch, big, flushed[0]);
+                        } else {
+                            pool.putInt(bytes.length).put(bytes);
+                        }
+                        poolEnd[0] += needed;
+                        if (dedup != null) dedup.put(value, existing);
+                    }
+                    offsets[slot] = existing;
+                }
+                written[0]++;
+
+                if (written[0] == DEDUP_SAMPLE_ROWS) {
+                    for (int f = 0; f < fieldCount; f++) {
+                        if (pooled.get(f) != null && pooled.get(f).size() > DEDUP_SAMPLE_ROWS / 2) pooled.set(f, null);
+                    }
+                }
+            });
+            pool.flip();
+            writeFully(ch, pool, flushed[0]);
+
+            if (written[0] != recordCount) {
+                throw new IOException("Declared " + recordCount + " records but wrote " + written[0]);
+            }
+
+            int keptShared = 0;
+            for (int f = 0; f < fieldCount; f++) {
+                if (pooled.get(f) != null) keptShared |= 1 << f;
+            }
+
+            ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE);
+            head.putInt(MAGIC).putShort(VERSION).putShort((short) fieldCount)
+                    .putInt(recordCount).putInt(keptShared).putLong(poolStart);
+            head.flip();
+            long pos = writeFully(ch, head, 0);
+
+            pool.clear();
+            for (int offset : offsets) {
+                if (pool.remaining() < Integer.BYTES) {
+                    pool.flip();
+                    pos = writeFully(ch, pool, pos);
+                    pool.clear();
+                }
+                pool.putInt(offset);
+            }
+            pool.flip();
+            writeFully(ch, pool, pos);
+            ch.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Writes the remaining bytes at the given position and returns the new end position
+    private static long writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) position += ch.write(buf, position);
+        return position;
+    }
+
+    public int recordCount() { return recordCount; }
+    public int fieldCount() { return fieldCount; }
+
+    /**
+     * Decodes one field of one record.
+     */
+    public String get(int record, int field) {
+        int offset = offsetOf(record, field);
+        return offset == NULL_OFFSET ? null : decode(offset);
+    }
+
+    /**
+     * Like {@link #get} but, for fields stored deduplicated, returns the same String instance
+     * for every record that shares the value (author, category, ...).
+     */
+    public String getShared(int record, int field) {
+        int offset = offsetOf(record, field);
+        if (offset == NULL_OFFSET) return null;
+        if ((sharedFields & (1 << field)) == 0) return decode(offset);
+        return shared.computeIfAbsent(offset, this::decode);
+    }
+
+    private int offsetOf(int record, int field) {
+        if (record < 0 || record >= recordCount || field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("record " + record + ", field " + field);
+        }
+        return buffer.getInt(HEADER_SIZE + (record * fieldCount + field) * Integer.BYTES);
+    }
+
+    private String decode(int offset) {
+        int start = (int) (poolOffset + offset);
+        int length = buffer.getInt(start);
+        byte[] bytes = new byte[length];
+        buffer.get(start + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,56 @@
+package com.company.MultiModule.Repository;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Stores each table as a {@link BinarySnapshot} ({@code <table>.bin}).
+ * When a table has no snapshot yet its CSV file is read instead, so existing data imports on first load.
+ */
+public class BinarySnapshotEngine implements StorageEngine {
+
+    private final String dataDir;
+    private final CsvStorageEngine csvImport;
+
+    public BinarySnapshotEngine(String dataDir) {
+        this.dataDir = dataDir;
+        this.csvImport = new CsvStorageEngine(dataDir);
+    }
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public boolean exists(String table) {
+        return BinarySnapshot.exists(fileOf(table)) || csvImport.exists(table);
+    }
+
+    @Override
+    public void read(String table, Consumer<String[]> consumer) throws IOException {
+        if (!BinarySnapshot.exists(fileOf(table))) {
+            csvImport.read(table, consumer);
+            return;
+        }
+
+        BinarySnapshot snapshot = BinarySnapshot.open(fileOf(table));
+        int fieldCount = snapshot.fieldCount();
+        for (int record = 0; record < snapshot.recordCount(); record++) {
+            String[] fields = new String[fieldCount];
+            for (int f = 0; f < fieldCount; f++) {
+                fields[f] = snapshot.getShared(record, f);
+            }
+            consumer.accept(fields);
+        }
+    }
+
+    @Override
+    public void write(String table, String[] columns, int rowCount, RowWriter writer) throws IOException {
+        BinarySnapshot.save(fileOf(table), columns.length, rowCount, sink -> writer.writeTo(sink::accept));
+    }
+
+    String fileOf(String table) {
+        return dataDir + "/" + table + ".bin";
+    }
+}
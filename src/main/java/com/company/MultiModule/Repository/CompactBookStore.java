@@ -0,0 +1,664 @@
+package com.company.MultiModule.Repository;
+
+import com.company.MultiModule.models.Book;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Column-oriented, in-memory book table behind a {@code Map<String, Book>} keyed by book id.
+ * <p>
+ * Each field lives in its own column: UUID ids as two longs, author and category as int codes into
+ * per-store dictionaries, title and ISBN as UTF-8 in an off-heap arena, availability as bits of long words.
+ * Ids that are not canonical UUIDs go to the arena as well. Rows are found by id, and by ISBN through
+ * {@link #findByIsbn}, in hash tables that use linear probing over int slots, so there is no entry object
+ * or string per book.
+ * <p>
+ * {@link #get} hands out small flyweight {@link Book} views that read their row on every call;
+ * {@code setAvailable} on a view writes through. Replacing or removing a book only retires its row,
+ * so views handed out earlier keep reading the old values. Once retired rows outnumber live ones, the live
+ * rows and their arena bytes are copied into a new generation of columns and the old one is left to the
+ * views that still point at its retired rows; views of live rows follow their row to the new generation.
+ * The store is safe to share between threads. Writers take a {@link StampedLock}; readers do not lock:
+ * they read optimistically and only fall back to the read lock when a write raced with them.
+ * Availability never takes the lock: its bits are read and flipped by CAS on their word.
+ */
+public class CompactBookStore extends AbstractMap<String, Book> {
+
+    private static final long NULL_REF = -1;
+    private static final int ID = 0, TITLE = 1, AUTHOR = 2, CATEGORY = 3, ISBN = 4;
+    // Availability words come in chunks of 64 longs (4096 bits) that never move once allocated,
+    // so a CAS on a word can not be lost to a resize
+    private static final int CHUNK_SHIFT = 12;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    // Retired rows are compacted away once there are more of them than live rows, and at least this many
+    static final int MIN_COMPACT_ROWS = 1024;
+
+    // Form in which ISBNs are compared
+    private final UnaryOperator<String> isbnKey;
+    private volatile Columns columns;
+
+    public CompactBookStore() {
+        this(UnaryOperator.identity());
+    }
+
+    /**
+     * A store whose {@link #findByIsbn} treats two ISBNs as equal when {@code isbnKey} maps them to the same string.
+     */
+    public CompactBookStore(UnaryOperator<String> isbnKey) {
+        this.isbnKey = isbnKey;
+        this.columns = new Columns(new Availability(), 16);
+    }
+
+    // Id of a lookup, parsed once: UUID bits, or the UTF-8 bytes of any other id
+    private record Key(long high, long low, byte[] text) {
+
+        // Only the canonical lower-case form counts as a UUID, so the id reads back exactly as given
+        static Key of(String id) {
+            if (!isCanonicalUuid(id)) return new Key(0, 0, id.getBytes(StandardCharsets.UTF_8));
+            long high = hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18);
+            long low = hex(id, 19, 23) << 48 | hex(id, 24, 36);
+            return new Key(high, low, null);
+        }
+
+        private static boolean isCanonicalUuid(String id) {
+            if (id.length() != 36) return false;
+            for (int i = 0; i < 36; i++) {
+                char c = id.charAt(i);
+                boolean ok = i == 8 || i == 13 || i == 18 || i == 23
+                        ? c == '-'
+                        : c >= '0' && c <= '9' || c >= 'a' && c <= 'f';
+                if (!ok) return false;
+            }
+            return true;
+        }
+
+        private static long hex(String id, int from, int to) {
+            long value = 0;
+            for (int i = from; i < to; i++) value = value << 4 | Character.digit(id.charAt(i), 16);
+            return value;
+        }
+
+        int hash() {
+            return text != null ? Arrays.hashCode(text) : Long.hashCode(high * 31 + low);
+        }
+    }
+
+    // A book's fields, read before the write lock is taken (a view of this store cannot be read under it)
+    private record Fields(String title, String isbn, String author, String category, boolean available) {
+
+        static Fields of(Book book) {
+            return new Fields(book.getTitle(), book.getIsbn(), book.getAuthor(), book.getCategory(), book.isAvailable());
+        }
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            if (value == null) return -1;
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        String value(int code) {
+            return code < 0 ? null : values.get(code);
+        }
+    }
+
+    // One availability bit per row ever appended, shared by every generation until clear(). A row keeps its
+    // bit when compaction moves it and bits are never reused, so a CAS through any view lands on its own book.
+    private static final class Availability {
+        volatile long[][] chunks = {new long[1 << (CHUNK_SHIFT - 6)]};
+        // Bits handed out; only changed under the write lock of the current generation
+        int allocated;
+
+        int allocate() {
+            int bit = allocated++;
+            if (bit >>> CHUNK_SHIFT == chunks.length) {
+                long[][] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                grown[grown.length - 1] = new long[1 << (CHUNK_SHIFT - 6)];
+                chunks = grown;
+            }
+            return bit;
+        }
+
+        boolean get(int bit) {
+            long[] chunk = chunks[bit >>> CHUNK_SHIFT];
+            long word = (long) WORDS.getVolatile(chunk, (bit & ((1 << CHUNK_SHIFT) - 1)) >>> 6);
+            return (word & (1L << bit)) != 0;
+        }
+
+        // Flips the bit to the given value by CAS; false when it already had it
+        boolean change(int bit, boolean available) {
+            long[] chunk = chunks[bit >>> CHUNK_SHIFT];
+            int index = (bit & ((1 << CHUNK_SHIFT) - 1)) >>> 6;
+            long mask = 1L << bit;
+            while (true) {
+                long word = (long) WORDS.getVolatile(chunk, index);
+                if (((word & mask) != 0) == available) return false;
+                if (WORDS.compareAndSet(chunk, index, word, word ^ mask)) return true;
+            }
+        }
+    }
+
+    // Open-addressing hash table of row + 1 (0 for empty) with linear probing; hashOf gives a row's hash
+    private static final class RowTable {
+        private final IntUnaryOperator hashOf;
+        private int[] slots = new int[32];
+        private int size;
+
+        RowTable(IntUnaryOperator hashOf) {
+            this.hashOf = hashOf;
+        }
+
+        // First row in the hash's probe run that matches, or -1
+        int find(int hash, IntPredicate matches) {
+            int[] table = slots;
+            int mask = table.length - 1;
+            // Bounded so a probe over a table that is changing underneath an optimistic read still ends
+            int i = mix(hash) & mask;
+            for (int probes = 0; probes < table.length && table[i] != 0; probes++, i = (i + 1) & mask) {
+                int row = table[i] - 1;
+                if (matches.test(row)) return row;
+            }
+            return -1;
+        }
+
+        void insert(int row) {
+            if ((size + 1) * 2 > slots.length) {
+                int[] old = slots;
+                slots = new int[old.length * 2];
+                for (int slot : old) {
+                    if (slot != 0) place(slot - 1);
+                }
+            }
+            place(row);
+            size++;
+        }
+
+        void remove(int row) {
+            int mask = slots.length - 1;
+            int i = home(row);
+            while (slots[i] != row + 1) i = (i + 1) & mask;
+            // Backward-shift deletion: pull later entries of the probe run into the hole
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (slots[j] == 0) break;
+                int k = home(slots[j] - 1);
+                boolean stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+                if (stays) continue;
+                slots[i] = slots[j];
+                i = j;
+            }
+            slots[i] = 0;
+            size--;
+        }
+
+        private void place(int row) {
+            int mask = slots.length - 1;
+            int i = home(row);
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = row + 1;
+        }
+
+        private int home(int row) {
+            return mix(hashOf.applyAsInt(row)) & (slots.length - 1);
+        }
+    }
+
+    // One generation of the table. clear() and compaction start a new one, so older views never see reused rows.
+    private final class Columns {
+        final StampedLock lock = new StampedLock();
+        final Availability availability;
+        long[] idHigh;                  // UUID bits, or the arena ref of a text id
+        long[] idLow;
+        long[] titles;                  // arena refs: offset << 32 | length
+        long[] isbns;
+        int[] authors;                  // dictionary codes, -1 for null
+        int[] categories;
+        int[] bits;                     // availability bit of the row
+        int[] isbnHashes;               // hash of the ISBN key, for rows with an ISBN
+        final BitSet live = new BitSet();
+        final BitSet textIds = new BitSet();
+        final BitSet hasIsbn = new BitSet();
+        final Dictionary authorCodes = new Dictionary();
+        final Dictionary categoryCodes = new Dictionary();
+        ByteBuffer arena = ByteBuffer.allocateDirect(4096);
+        int arenaUsed;
+        final RowTable ids = new RowTable(this::idHash);
+        final RowTable isbnRows = new RowTable(row -> isbnHashes[row]);
+        int rows;
+        int liveCount;
+        // Set by compaction: the generation that replaced this one, and where each live row went (-1 for retired rows)
+        volatile Columns next;
+        int[] movedTo;
+
+        Columns(Availability availability, int capacity) {
+            this.availability = availability;
+            idHigh = new long[capacity];
+            idLow = new long[capacity];
+            titles = new long[capacity];
+            isbns = new long[capacity];
+            authors = new int[capacity];
+            categories = new int[capacity];
+            bits = new int[capacity];
+            isbnHashes = new int[capacity];
+        }
+
+        // Runs the reader without locking and keeps the result if no write happened meanwhile. A racing write
+        // can leave the reader looking at half-updated arrays or bit sets, so its result (or exception) is
+        // thrown away and the read is repeated under the read lock.
+        <T> T read(Supplier<T> reader) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    T value = reader.get();
+                    if (lock.validate(stamp)) return value;
+                } catch (RuntimeException raced) {
+                    // retried below
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return reader.get();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        String field(int row, int field) {
+            return read(() -> switch (field) {
+                case ID -> textIds.get(row) ? string(idHigh[row]) : new UUID(idHigh[row], idLow[row]).toString();
+                case TITLE -> string(titles[row]);
+                case AUTHOR -> authorCodes.value(authors[row]);
+                case CATEGORY -> categoryCodes.value(categories[row]);
+                case ISBN -> string(isbns[row]);
+                default -> throw new IllegalArgumentException("Unknown field " + field);
+            });
+        }
+
+        View view(int row) {
+            return new View(this, row, read(() -> bits[row]));
+        }
+
+        int find(Key key) {
+            return ids.find(key.hash(), row -> matches(row, key));
+        }
+
+        int findIsbn(String key) {
+            int hash = key.hashCode();
+            return isbnRows.find(hash, row -> isbnHashes[row] == hash && key.equals(isbnKey.apply(string(isbns[row]))));
+        }
+
+        int append(Key key, Fields book) {
+            int row = newRow();
+            if (key.text() != null) {
+                idHigh[row] = write(key.text());
+                textIds.set(row);
+            } else {
+                idHigh[row] = key.high();
+                idLow[row] = key.low();
+            }
+            titles[row] = write(book.title());
+            isbns[row] = write(book.isbn());
+            authors[row] = authorCodes.code(book.author());
+            categories[row] = categoryCodes.code(book.category());
+            bits[row] = availability.allocate();
+            if (book.available()) availability.change(bits[row], true);
+            link(row, book.isbn() != null, book.isbn() == null ? 0 : isbnKey.apply(book.isbn()).hashCode());
+            return row;
+        }
+
+        // Appends a copy of a row of an older generation, keeping its availability bit
+        private int copy(Columns from, int old) {
+            int row = newRow();
+            if (from.textIds.get(old)) {
+                idHigh[row] = copyRef(from, from.idHigh[old]);
+                textIds.set(row);
+            } else {
+                idHigh[row] = from.idHigh[old];
+                idLow[row] = from.idLow[old];
+            }
+            titles[row] = copyRef(from, from.titles[old]);
+            isbns[row] = copyRef(from, from.isbns[old]);
+            authors[row] = authorCodes.code(from.authorCodes.value(from.authors[old]));
+            categories[row] = categoryCodes.code(from.categoryCodes.value(from.categories[old]));
+            bits[row] = from.bits[old];
+            link(row, from.hasIsbn.get(old), from.isbnHashes[old]);
+            return row;
+        }
+
+        private int newRow() {
+            if (rows == titles.length) grow();
+            return rows++;
+        }
+
+        private void link(int row, boolean indexIsbn, int isbnHash) {
+            live.set(row);
+            liveCount++;
+            ids.insert(row);
+            if (indexIsbn) {
+                isbnHashes[row] = isbnHash;
+                hasIsbn.set(row);
+                isbnRows.insert(row);
+            }
+        }
+
+        // Takes the row out of the hash tables; its values stay for views that still point at it
+        void retire(int row) {
+            live.clear(row);
+            liveCount--;
+            ids.remove(row);
+            if (hasIsbn.get(row)) isbnRows.remove(row);
+        }
+
+        boolean mostlyRetired() {
+            return rows - liveCount > Math.max(MIN_COMPACT_ROWS, liveCount);
+        }
+
+        // Copies the live rows into a new generation and records where each one went
+        Columns compact() {
+            Columns compacted = new Columns(availability, Math.max(16, liveCount));
+            int[] to = new int[rows];
+            Arrays.fill(to, -1);
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                to[row] = compacted.copy(this, row);
+            }
+            movedTo = to;
+            next = compacted;
+            return compacted;
+        }
+
+        private boolean matches(int row, Key key) {
+            if (key.text() == null) {
+                return !textIds.get(row) && idHigh[row] == key.high() && idLow[row] == key.low();
+            }
+            if (!textIds.get(row) || length(idHigh[row]) != key.text().length) return false;
+            int offset = offset(idHigh[row]);
+            for (int i = 0; i < key.text().length; i++) {
+                if (arena.get(offset + i) != key.text()[i]) return false;
+            }
+            return true;
+        }
+
+        private int idHash(int row) {
+            if (!textIds.get(row)) return Long.hashCode(idHigh[row] * 31 + idLow[row]);
+            int hash = 1;
+            int offset = offset(idHigh[row]);
+            for (int i = 0; i < length(idHigh[row]); i++) hash = 31 * hash + arena.get(offset + i);
+            return hash;
+        }
+
+        private void grow() {
+            int capacity = rows * 2;
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            isbns = Arrays.copyOf(isbns, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            bits = Arrays.copyOf(bits, capacity);
+            isbnHashes = Arrays.copyOf(isbnHashes, capacity);
+        }
+
+        private long write(String value) {
+            return value == null ? NULL_REF : write(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private long copyRef(Columns from, long ref) {
+            return ref == NULL_REF ? NULL_REF : write(from.bytes(ref));
+        }
+
+        private long write(byte[] bytes) {
+            if (arenaUsed + bytes.length > arena.capacity()) {
+                long capacity = Math.max(2L * arena.capacity(), (long) arenaUsed + bytes.length);
+                if (capacity > Integer.MAX_VALUE) throw new IllegalStateException("Book store arena is full");
+                ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+                grown.put(0, arena, 0, arenaUsed);
+                arena = grown;
+            }
+            arena.put(arenaUsed, bytes);
+            long ref = ((long) arenaUsed << 32) | bytes.length;
+            arenaUsed += bytes.length;
+            return ref;
+        }
+
+        private String string(long ref) {
+            return ref == NULL_REF ? null : new String(bytes(ref), StandardCharsets.UTF_8);
+        }
+
+        private byte[] bytes(long ref) {
+            byte[] bytes = new byte[length(ref)];
+            arena.get(offset(ref), bytes);
+            return bytes;
+        }
+
+        private static int offset(long ref) {
+            return (int) (ref >>> 32);
+        }
+
+        private static int length(long ref) {
+            return (int) ref;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Generation and row a view reads from after following its row through compactions
+    private record Place(Columns columns, int row) {
+
+        // A row that was retired before a compaction stays where it was
+        static Place follow(Columns columns, int row) {
+            Columns c = columns;
+            while (c.next != null && c.movedTo[row] >= 0) {
+                row = c.movedTo[row];
+                c = c.next;
+            }
+            return new Place(c, row);
+        }
+    }
+
+    // Flyweight over one row; Book's own fields stay null
+    private static final class View extends Book {
+        private final Columns columns;
+        private final int row;
+        private final int bit;
+        // Set once the row has been moved by compaction
+        private Place moved;
+
+        View(Columns columns, int row, int bit) {
+            this.columns = columns;
+            this.row = row;
+            this.bit = bit;
+        }
+
+        @Override public String getId() { return field(ID); }
+        @Override public String getTitle() { return field(TITLE); }
+        @Override public String getAuthor() { return field(AUTHOR); }
+        @Override public String getCategory() { return field(CATEGORY); }
+        @Override public String getIsbn() { return field(ISBN); }
+
+        private String field(int field) {
+            Place place = moved;
+            if (place == null) {
+                if (columns.next == null) return columns.field(row, field);
+                place = moved = Place.follow(columns, row);
+            } else if (place.columns().next != null) {
+                place = moved = Place.follow(place.columns(), place.row());
+            }
+            return place.columns().field(place.row(), field);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return columns.availability.get(bit);
+        }
+
+        @Override
+        public void setAvailable(boolean available) {
+            columns.availability.change(bit, available);
+        }
+
+        @Override
+        public boolean compareAndSetAvailable(boolean expected, boolean update) {
+            return expected == update ? isAvailable() == expected : columns.availability.change(bit, update);
+        }
+    }
+
+    @Override
+    public Book get(Object id) {
+        if (!(id instanceof String key)) return null;
+        Key k = Key.of(key);
+        Columns c = columns;
+        int row = c.read(() -> c.find(k));
+        return row < 0 ? null : c.view(row);
+    }
+
+    @Override
+    public boolean containsKey(Object id) {
+        return get(id) != null;
+    }
+
+    /**
+     * The live book whose ISBN has the same key as the given one, or null.
+     */
+    public Book findByIsbn(String isbn) {
+        if (isbn == null) return null;
+        String key = isbnKey.apply(isbn);
+        Columns c = columns;
+        int row = c.read(() -> c.findIsbn(key));
+        return row < 0 ? null : c.view(row);
+    }
+
+    /**
+     * Copies the book's fields into a new row; the book itself is not kept. Returns a view of the replaced book.
+     */
+    @Override
+    public Book put(String id, Book book) {
+        if (!id.equals(book.getId())) throw new IllegalArgumentException("Key " + id + " is not the id of the book");
+        Key key = Key.of(id);
+        Fields fields = Fields.of(book);
+        return write(c -> {
+            int previous = c.find(key);
+            if (previous >= 0) c.retire(previous);
+            c.append(key, fields);
+            return previous < 0 ? null : new View(c, previous, c.bits[previous]);
+        });
+    }
+
+    @Override
+    public Book remove(Object id) {
+        if (!(id instanceof String key)) return null;
+        Key k = Key.of(key);
+        return write(c -> {
+            int row = c.find(k);
+            if (row < 0) return null;
+            c.retire(row);
+            return new View(c, row, c.bits[row]);
+        });
+    }
+
+    // Applies the change to the current generation under its write lock, then compacts it if most rows are retired
+    private Book write(Function<Columns, Book> change) {
+        while (true) {
+            Columns c = columns;
+            long stamp = c.lock.writeLock();
+            try {
+                // Replaced by compaction or clear() while we waited for the lock
+                if (c != columns) continue;
+                Book result = change.apply(c);
+                if (c.mostlyRetired()) columns = c.compact();
+                return result;
+            } finally {
+                c.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        Columns c = columns;
+        return c.read(() -> c.liveCount);
+    }
+
+    @Override
+    public void clear() {
+        columns = new Columns(new Availability(), 16);
+    }
+
+    // Off-heap bytes holding titles, ISBNs and non-UUID ids, retired rows included
+    int arenaBytes() {
+        return columns.arenaUsed;
+    }
+
+    // Rows of the current generation, retired rows included
+    int rowCount() {
+        Columns c = columns;
+        return c.read(() -> c.rows);
+    }
+
+    /**
+     * Live books in row order. Like the concurrent maps it replaces, iteration is weakly consistent:
+     * it never fails on concurrent changes, and {@code Iterator.remove} is supported.
+     */
+    @Override
+    public Set<Entry<String, Book>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return CompactBookStore.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<String, Book>> iterator() {
+                Columns c = columns;
+                return new Iterator<>() {
+                    private int next = nextLive(c, 0);
+                    private String last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Entry<String, Book> next() {
+                        if (next < 0) throw new NoSuchElementException();
+                        View view = c.view(next);
+                        next = nextLive(c, next + 1);
+                        last = view.getId();
+                        return new SimpleImmutableEntry<>(last, view);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) throw new IllegalStateException();
+                        // By id, since compaction may have moved the row to a newer generation
+                        CompactBookStore.this.remove(last);
+                        last = null;
+                    }
+                };
+            }
+        };
+    }
+
+    private static int nextLive(Columns c, int from) {
+        return c.read(() -> c.live.nextSetBit(from));
+    }
+}
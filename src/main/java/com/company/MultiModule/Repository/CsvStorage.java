@@ -1,17 +1,56 @@
 package com.company.MultiModule.Repository;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class CsvStorage {
 
+    /**
+     * Receives one line at a time while a file is being written.
+     */
+    @FunctionalInterface
+    public interface LineSink {
+        void accept(String line) throws IOException;
+    }
+
+    /**
+     * Produces the lines of a file by pushing them into the given sink.
+     */
+    @FunctionalInterface
+    public interface LineWriter {
+        void writeTo(LineSink sink) throws IOException;
+    }
+
     public static void save(String filePath, List<String> lines) throws IOException {
+        save(filePath, sink -> {
+            for (String line : lines) sink.accept(line);
+        });
+    }
+
+    /**
+     * Streams lines straight into a temp file and atomically moves it over the target,
+     * so only the current row has to be held in memory.
+     */
+    public static void save(String filePath, LineWriter writer) throws IOException {
         Path path = Paths.get(filePath);
         Files.createDirectories(path.getParent());
 
         Path tempFile = Files.createTempFile(path.getParent(), "temp-", ".csv");
-        Files.write(tempFile, lines);
+        try (BufferedWriter out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            writer.writeTo(line -> {
+                out.write(line);
+                out.newLine();
+            });
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
 
         int retryCount = 3;
         while (retryCount-- > 0) {
@@ -21,12 +60,9 @@ public class CsvStorage {
             } catch (IOException e) {
                 try { Thread.sleep(100); } catch (InterruptedException ignored) {}
             }
-            finally {
-                Files.deleteIfExists(tempFile);
-            }
         }
 
-
+        Files.deleteIfExists(tempFile);
         throw new IOException("Failed to save file after multiple retries");
     }
 
@@ -35,4 +71,24 @@ public class CsvStorage {
         if (!Files.exists(path)) return Collections.emptyList();
         return Files.readAllLines(path);
     }
+
+    /**
+     * Lazily reads the data rows of a CSV file (the header line is skipped).
+     * The returned stream holds the file open and must be closed by the caller.
+     */
+    public static Stream<String> rows(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) return Stream.empty();
+
+        BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        return reader.lines()
+                .skip(1)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 }
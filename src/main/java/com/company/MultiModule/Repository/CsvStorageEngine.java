@@ -0,0 +1,73 @@
+package com.company.MultiModule.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * One {@code <table>.csv} file per table, rewritten in full on every write.
+ */
+public class CsvStorageEngine implements StorageEngine {
+
+    private final String dataDir;
+
+    public CsvStorageEngine(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    @Override
+    public String name() {
+        return "csv";
+    }
+
+    @Override
+    public boolean exists(String table) {
+        return Files.exists(Paths.get(fileOf(table)));
+    }
+
+    @Override
+    public void read(String table, Consumer<String[]> consumer) throws IOException {
+        try (Stream<String> rows = CsvStorage.rows(fileOf(table))) {
+            rows.forEach(row -> consumer.accept(decode(row)));
+        }
+    }
+
+    @Override
+    public void write(String table, String[] columns, int rowCount, RowWriter writer) throws IOException {
+        CsvStorage.save(fileOf(table), sink -> {
+            sink.accept(String.join(",", columns));
+            writer.writeTo(fields -> sink.accept(encode(fields)));
+        });
+    }
+
+    String fileOf(String table) {
+        return dataDir + "/" + table + ".csv";
+    }
+
+    static String encode(String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) line.append(',');
+            if (fields[i] != null) line.append(escape(fields[i]));
+        }
+        return line.toString();
+    }
+
+    static String[] decode(String line) {
+        String[] fields = line.split(",", -1);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = unescape(fields[i]);
+        }
+        return fields;
+    }
+
+    private static String escape(String s) {
+        return s.replace(",", "%2C"); // basic CSV escaping
+    }
+
+    private static String unescape(String s) {
+        return s.replace("%2C", ",");
+    }
+}
@@ -0,0 +1,162 @@
+package com.company.MultiModule.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Wraps another engine with a patch segment per table ({@code <table>.patch}) for tables keyed by their first column.
+ * {@link #writeDelta} appends only the changed and removed rows to the patch; reads stream the base table and
+ * apply the patch on the way, so only the patch is held in memory. Once the patch outgrows the base it is
+ * folded into a full write of the base engine.
+ */
+public class DeltaStorageEngine implements StorageEngine {
+
+    private static final String UPSERT = "U";
+    private static final String REMOVE = "X";
+    // Patch records tolerated before compaction, unless the base table is larger
+    private static final int COMPACTION_SLACK = 1024;
+    private static final String[] REMOVED = new String[0];
+
+    private final StorageEngine base;
+    private final String dataDir;
+    private final Map<String, Journal> patches = new HashMap<>();
+    private final Map<String, Integer> patchRecords = new HashMap<>();
+    private final Map<String, Integer> baseRows = new HashMap<>();
+
+    public DeltaStorageEngine(StorageEngine base, String dataDir) {
+        this.base = base;
+        this.dataDir = dataDir;
+    }
+
+    @Override
+    public String name() {
+        return base.name() + "+delta";
+    }
+
+    @Override
+    public boolean exists(String table) {
+        return base.exists(table) || Files.exists(Paths.get(fileOf(table)));
+    }
+
+    @Override
+    public synchronized void read(String table, Consumer<String[]> consumer) throws IOException {
+        merge(table, loadPatch(table), consumer::accept);
+    }
+
+    /**
+     * Replaces the whole table and empties its patch.
+     */
+    @Override
+    public synchronized void write(String table, String[] columns, int rowCount, RowWriter writer) throws IOException {
+        base.write(table, columns, rowCount, writer);
+        patch(table).truncate();
+        patchRecords.put(table, 0);
+        baseRows.put(table, rowCount);
+    }
+
+    /**
+     * Inserts or replaces {@code upserts} by their first column and removes the rows keyed by {@code removedKeys}.
+     * Only these rows are written, so the cost follows the number of changes rather than the table size.
+     */
+    public synchronized void writeDelta(String table, String[] columns, Collection<String[]> upserts,
+                                        Collection<String> removedKeys) throws IOException {
+        if (upserts.isEmpty() && removedKeys.isEmpty()) return;
+
+        Journal patch = patch(table);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (String key : removedKeys) {
+            pending.add(patch.appendAsync(REMOVE + "," + CsvStorageEngine.encode(key)));
+        }
+        for (String[] row : upserts) {
+            pending.add(patch.appendAsync(UPSERT + "," + CsvStorageEngine.encode(row)));
+        }
+        for (CompletableFuture<Void> durable : pending) {
+            Journal.awaitDurable(durable);
+        }
+
+        int records = patchRecords.getOrDefault(table, 0) + pending.size();
+        patchRecords.put(table, records);
+        if (records > Math.max(COMPACTION_SLACK, baseRows.getOrDefault(table, 0))) {
+            compact(table, columns);
+        }
+    }
+
+    // Folds the patch into a full write of the base table: one pass to count the merged rows, one to write them
+    private void compact(String table, String[] columns) throws IOException {
+        Map<String, String[]> patch = loadPatch(table);
+        int rowCount = merge(table, patch, row -> {});
+        write(table, columns, rowCount, sink -> merge(table, patch, sink));
+    }
+
+    // Latest patch record per key, REMOVED for deleted rows. Only the patch is held in memory.
+    private Map<String, String[]> loadPatch(String table) throws IOException {
+        Map<String, String[]> patch = new LinkedHashMap<>();
+        int[] records = {0};
+        patch(table).replay(record -> {
+            records[0]++;
+            String[] parts = record.split(",", 2);
+            if (parts.length < 2) return;
+            if (UPSERT.equals(parts[0])) {
+                String[] row = CsvStorageEngine.decode(parts[1]);
+                patch.put(row[0], row);
+            } else if (REMOVE.equals(parts[0])) {
+                patch.put(CsvStorageEngine.decode(parts[1])[0], REMOVED);
+            }
+        });
+        patchRecords.put(table, records[0]);
+        return patch;
+    }
+
+    /**
+     * Streams the base rows with the patch applied in place, then the rows the patch adds.
+     * Returns the number of rows emitted.
+     */
+    private int merge(String table, Map<String, String[]> patch, RowSink sink) throws IOException {
+        Set<String> replaced = new HashSet<>();
+        int[] counts = {0, 0}; // base rows, emitted rows
+        try {
+            base.read(table, row -> {
+                counts[0]++;
+                String[] current = row;
+                if (row.length > 0 && patch.containsKey(row[0])) {
+                    replaced.add(row[0]);
+                    current = patch.get(row[0]);
+                }
+                if (current == REMOVED) return;
+                emit(sink, current);
+                counts[1]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        baseRows.put(table, counts[0]);
+
+        for (Map.Entry<String, String[]> entry : patch.entrySet()) {
+            if (entry.getValue() == REMOVED || replaced.contains(entry.getKey())) continue;
+            sink.accept(entry.getValue());
+            counts[1]++;
+        }
+        return counts[1];
+    }
+
+    private static void emit(RowSink sink, String[] row) {
+        try {
+            sink.accept(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Journal patch(String table) {
+        return patches.computeIfAbsent(table, t -> new Journal(fileOf(t)));
+    }
+
+    String fileOf(String table) {
+        return dataDir + "/" + table + ".patch";
+    }
+}
@@ -0,0 +1,256 @@
+package com.company.MultiModule.Repository;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Append-only, line-oriented write-ahead log.
+ * Each record is a single line; a record only counts once its trailing newline is on disk,
+ * so a torn write at the tail is ignored on replay.
+ * <p>
+ * Appends are group-committed: a single writer thread collects records for up to
+ * {@code library.journal.commitWindowMs} milliseconds or {@code library.journal.commitBatchSize}
+ * records, writes them together and forces the file once for the whole batch.
+ */
+public class Journal implements Closeable {
+
+    private static final long COMMIT_WINDOW_MS = Long.getLong("library.journal.commitWindowMs", 2);
+    private static final int COMMIT_BATCH_SIZE = Integer.getInteger("library.journal.commitBatchSize", 256);
+
+    private final Path path;
+    private FileChannel channel;
+
+    // Tells the writer thread to commit what it has and stop
+    private static final PendingRecord SHUTDOWN = new PendingRecord("");
+
+    private final BlockingQueue<PendingRecord> pending = new LinkedBlockingQueue<>();
+    private Thread committer;
+    // Forces issued so far; only the committer thread writes it
+    private volatile long commits;
+
+    private static final class PendingRecord {
+        final byte[] bytes;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        PendingRecord(String record) {
+            this((record + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        PendingRecord(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    public Journal(String filePath) {
+        this.path = Paths.get(filePath);
+    }
+
+    /**
+     * Queues one record for the next group commit.
+     * The future completes once the record has been forced to disk.
+     */
+    public CompletableFuture<Void> appendAsync(String record) {
+        if (record.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Journal records must be single lines");
+        }
+        PendingRecord entry = new PendingRecord(record);
+        pending.add(entry);
+        ensureCommitter();
+        return entry.durable;
+    }
+
+    /**
+     * Appends one record and waits until it is on disk.
+     */
+    public void append(String record) throws IOException {
+        awaitDurable(appendAsync(record));
+    }
+
+    /**
+     * Blocks until the given append is durable, unwrapping the write failure if there was one.
+     */
+    public static void awaitDurable(CompletableFuture<Void> durable) throws IOException {
+        try {
+            durable.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for journal commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IOException("Journal commit failed", cause);
+        }
+    }
+
+    /**
+     * Blocks until every record queued before the call has been committed, so a checkpoint can capture
+     * them and truncate without a late write landing after the truncate. Fails if that commit failed.
+     */
+    public void flush() throws IOException {
+        // Carries no bytes: it only completes with the batch that commits the records ahead of it
+        PendingRecord marker = new PendingRecord(new byte[0]);
+        pending.add(marker);
+        ensureCommitter();
+        awaitDurable(marker.durable);
+    }
+
+    /**
+     * Feeds every complete record to the consumer, oldest first.
+     */
+    public synchronized void replay(Consumer<String> consumer) throws IOException {
+        if (!Files.exists(path)) return;
+
+        long completeBytes = completeLength();
+        long read = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                read += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (read > completeBytes) break; // torn tail
+                if (!line.isEmpty()) consumer.accept(line);
+            }
+        }
+    }
+
+    /**
+     * Drops every record, typically right after a checkpoint captured them.
+     */
+    public synchronized void truncate() throws IOException {
+        channel().truncate(0);
+        channel.force(true);
+    }
+
+    public synchronized long size() throws IOException {
+        return Files.exists(path) ? Files.size(path) : 0;
+    }
+
+    /**
+     * Commits everything already queued, stops the writer thread and releases the file.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread stopping;
+        synchronized (this) {
+            stopping = committer;
+            committer = null;
+        }
+        if (stopping != null) {
+            pending.add(SHUTDOWN);
+            try {
+                stopping.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    // Number of group commits, each one fsync, for tests
+    long commitCount() {
+        return commits;
+    }
+
+    private synchronized void ensureCommitter() {
+        if (committer != null) return;
+
+        committer = new Thread(this::commitLoop, "journal-commit-" + path.getFileName());
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    private void commitLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                PendingRecord first = pending.take();
+                if (first == SHUTDOWN) break;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMMIT_WINDOW_MS);
+                while (batch.size() < COMMIT_BATCH_SIZE) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingRecord next = remaining > 0
+                            ? pending.poll(remaining, TimeUnit.NANOSECONDS)
+                            : pending.poll();
+                    if (next == null) break;
+                    if (next == SHUTDOWN) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<PendingRecord> batch) {
+        if (batch.isEmpty()) return;
+
+        int size = 0;
+        for (PendingRecord r : batch) size += r.bytes.length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (PendingRecord r : batch) buffer.put(r.bytes);
+        buffer.flip();
+
+        try {
+            synchronized (this) {
+                FileChannel ch = channel();
+                while (buffer.hasRemaining()) {
+                    ch.write(buffer);
+                }
+                ch.force(false);
+                commits++;
+            }
+            for (PendingRecord r : batch) r.durable.complete(null);
+        } catch (IOException e) {
+            for (PendingRecord r : batch) r.durable.completeExceptionally(e);
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    // Length of the file up to and including its last newline
+    private long completeLength() throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long pos = ch.size();
+            ByteBuffer one = ByteBuffer.allocate(1);
+            while (pos > 0) {
+                one.clear();
+                ch.read(one, pos - 1);
+                if (one.get(0) == '\n') return pos;
+                pos--;
+            }
+            return 0;
+        }
+    }
+}
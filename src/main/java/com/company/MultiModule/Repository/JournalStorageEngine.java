@@ -0,0 +1,107 @@
+package com.company.MultiModule.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Log-structured engine: each table is a {@link Journal} ({@code <table>.log}) of put/delete records.
+ * A write appends only the rows that differ from the last state the engine saw, and the log is
+ * rewritten as a plain list of puts once it grows well past the number of live rows.
+ */
+public class JournalStorageEngine implements StorageEngine {
+
+    private static final String PUT = "P";
+    private static final String DELETE = "D";
+    // Extra records tolerated before a log is compacted, on top of twice its live rows
+    private static final int COMPACTION_SLACK = 1024;
+
+    private final String dataDir;
+    private final Map<String, Journal> journals = new HashMap<>();
+    // Encoded rows per table as of the last read or write, and how many records the log holds
+    private final Map<String, Set<String>> live = new HashMap<>();
+    private final Map<String, Integer> logRecords = new HashMap<>();
+
+    public JournalStorageEngine(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    @Override
+    public String name() {
+        return "journal";
+    }
+
+    @Override
+    public boolean exists(String table) {
+        return Files.exists(Paths.get(fileOf(table)));
+    }
+
+    @Override
+    public synchronized void read(String table, Consumer<String[]> consumer) throws IOException {
+        Set<String> rows = replay(table);
+        live.put(table, rows);
+        for (String row : rows) {
+            consumer.accept(CsvStorageEngine.decode(row));
+        }
+    }
+
+    @Override
+    public synchronized void write(String table, String[] columns, int rowCount, RowWriter writer) throws IOException {
+        Set<String> previous = live.containsKey(table) ? live.get(table) : replay(table);
+        Set<String> next = new LinkedHashSet<>(rowCount * 4 / 3 + 1);
+        writer.writeTo(fields -> next.add(CsvStorageEngine.encode(fields)));
+
+        Journal journal = journal(table);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (String row : previous) {
+            if (!next.contains(row)) pending.add(journal.appendAsync(DELETE + "," + row));
+        }
+        for (String row : next) {
+            if (!previous.contains(row)) pending.add(journal.appendAsync(PUT + "," + row));
+        }
+        for (CompletableFuture<Void> durable : pending) {
+            Journal.awaitDurable(durable);
+        }
+
+        live.put(table, next);
+        int records = logRecords.getOrDefault(table, 0) + pending.size();
+        logRecords.put(table, records);
+        if (records > 2 * next.size() + COMPACTION_SLACK) {
+            compact(table, next);
+        }
+    }
+
+    private Set<String> replay(String table) throws IOException {
+        Set<String> rows = new LinkedHashSet<>();
+        int[] records = {0};
+        journal(table).replay(record -> {
+            records[0]++;
+            String[] parts = record.split(",", 2);
+            if (parts.length < 2) return;
+            if (PUT.equals(parts[0])) rows.add(parts[1]);
+            else if (DELETE.equals(parts[0])) rows.remove(parts[1]);
+        });
+        logRecords.put(table, records[0]);
+        return rows;
+    }
+
+    // Rewrites the log so it holds one put per live row
+    private void compact(String table, Set<String> rows) throws IOException {
+        journal(table).close();
+        CsvStorage.save(fileOf(table), sink -> {
+            for (String row : rows) sink.accept(PUT + "," + row);
+        });
+        logRecords.put(table, rows.size());
+    }
+
+    private Journal journal(String table) {
+        return journals.computeIfAbsent(table, t -> new Journal(fileOf(t)));
+    }
+
+    String fileOf(String table) {
+        return dataDir + "/" + table + ".log";
+    }
+}
@@ -0,0 +1,175 @@
+package com.company.MultiModule.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Parses large CSV files (same format as {@link CsvStorageEngine}, header line first) on the common ForkJoinPool.
+ * The file is cut into byte ranges that end on a newline, each range is parsed independently, and line numbers
+ * are recovered afterwards from the number of lines in the ranges before it.
+ * Malformed rows are reported with their line number instead of being skipped silently.
+ */
+public class ParallelCsvImporter {
+
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    // Each range is read into one byte array, so it has to stay well below 2 GB
+    private static final int MAX_CHUNK_BYTES = 64 << 20;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * Parsed rows in file order, the rejected rows and how long the import took.
+     */
+    public record Result<T>(List<T> rows, List<String> errors, int rejectedCount, long elapsedNanos) {
+
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows.size() * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    // Outcome of one byte range; error line numbers are local to the range until merged
+    private static final class Chunk<T> {
+        final List<T> rows = new ArrayList<>();
+        final List<Long> errorLines = new ArrayList<>();
+        final List<String> errorMessages = new ArrayList<>();
+        int rejected;
+        long lines;
+    }
+
+    private ParallelCsvImporter() {}
+
+    /**
+     * Imports every data row of the file. Rows that do not have exactly {@code fieldCount} fields,
+     * or that the mapper rejects with an {@link IllegalArgumentException}, are counted as errors.
+     */
+    public static <T> Result<T> importFile(String filePath, int fieldCount, Function<String[], T> mapper) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            List<long[]> ranges = split(ch);
+
+            List<Callable<Chunk<T>>> tasks = new ArrayList<>(ranges.size());
+            for (long[] range : ranges) {
+                tasks.add(() -> parse(ch, range[0], range[1], fieldCount, mapper));
+            }
+
+            List<T> rows = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            int rejected = 0;
+            long linesBefore = 1; // the header
+            for (Future<Chunk<T>> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                Chunk<T> chunk = join(future);
+                rows.addAll(chunk.rows);
+                for (int i = 0; i < chunk.errorLines.size() && errors.size() < MAX_REPORTED_ERRORS; i++) {
+                    errors.add("line " + (linesBefore + chunk.errorLines.get(i)) + ": " + chunk.errorMessages.get(i));
+                }
+                rejected += chunk.rejected;
+                linesBefore += chunk.lines;
+            }
+            return new Result<>(rows, errors, rejected, System.nanoTime() - start);
+        }
+    }
+
+    // Byte ranges covering the data lines, each ending right after a newline (or at end of file)
+    private static List<long[]> split(FileChannel ch) throws IOException {
+        long size = ch.size();
+        long dataStart = nextLineStart(ch, 0, size);
+
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        long target = (size - dataStart) / Math.max(1, parallelism * 4L);
+        target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, target));
+
+        List<long[]> ranges = new ArrayList<>();
+        long from = dataStart;
+        while (from < size) {
+            long to = from + target >= size ? size : nextLineStart(ch, from + target, size);
+            ranges.add(new long[]{from, to});
+            from = to;
+        }
+        return ranges;
+    }
+
+    // Position just after the first newline at or after pos
+    private static long nextLineStart(FileChannel ch, long pos, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        while (pos < size) {
+            buf.clear();
+            int n = ch.read(buf, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static <T> Chunk<T> parse(FileChannel ch, long from, long to, int fieldCount,
+                                      Function<String[], T> mapper) throws IOException {
+        byte[] bytes = new byte[(int) (to - from)];
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, from + buf.position()) < 0) break;
+        }
+
+        Chunk<T> chunk = new Chunk<>();
+        int lineStart = 0;
+        // UTF-8 never uses the newline byte inside a multi-byte character, so splitting on raw bytes is safe
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i < bytes.length && bytes[i] != '\n') continue;
+            if (i == bytes.length && lineStart == i) break;
+
+            int end = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+            chunk.lines++;
+            if (end > lineStart) {
+                parseLine(chunk, new String(bytes, lineStart, end - lineStart, StandardCharsets.UTF_8), fieldCount, mapper);
+            }
+            lineStart = i + 1;
+        }
+        return chunk;
+    }
+
+    private static <T> void parseLine(Chunk<T> chunk, String line, int fieldCount, Function<String[], T> mapper) {
+        String[] fields = CsvStorageEngine.decode(line);
+        String problem;
+        if (fields.length != fieldCount) {
+            problem = "expected " + fieldCount + " fields but found " + fields.length;
+        } else {
+            try {
+                chunk.rows.add(mapper.apply(fields));
+                return;
+            } catch (IllegalArgumentException e) {
+                problem = e.getMessage();
+            }
+        }
+
+        chunk.rejected++;
+        if (chunk.errorLines.size() < MAX_REPORTED_ERRORS) {
+            chunk.errorLines.add(chunk.lines);
+            chunk.errorMessages.add(problem);
+        }
+    }
+
+    private static <T> Chunk<T> join(Future<Chunk<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("Import failed", cause);
+        }
+    }
+}
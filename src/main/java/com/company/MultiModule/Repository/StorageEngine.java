@@ -0,0 +1,38 @@
+package com.company.MultiModule.Repository;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Persists named tables of string rows. Services describe their rows; the engine decides the on-disk format.
+ * Implementations are picked through {@link StorageEngines}.
+ */
+public interface StorageEngine {
+
+    @FunctionalInterface
+    interface RowSink {
+        void accept(String... fields) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface RowWriter {
+        void writeTo(RowSink sink) throws IOException;
+    }
+
+    /**
+     * Short name used in configuration, e.g. {@code csv}.
+     */
+    String name();
+
+    boolean exists(String table);
+
+    /**
+     * Streams every stored row of the table to the consumer. A missing table yields no rows.
+     */
+    void read(String table, Consumer<String[]> consumer) throws IOException;
+
+    /**
+     * Replaces the contents of the table with exactly {@code rowCount} rows.
+     */
+    void write(String table, String[] columns, int rowCount, RowWriter writer) throws IOException;
+}
@@ -0,0 +1,35 @@
+package com.company.MultiModule.Repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the {@link StorageEngine} for a table from system properties:
+ * {@code library.storage.<table>} wins over {@code library.storage.engine}, which wins over the
+ * service's default. Files live under {@code library.data.dir} (default {@code data}).
+ * One instance per engine is shared by all tables, since some engines keep every table in one file.
+ */
+public final class StorageEngines {
+
+    public static final String DATA_DIR = System.getProperty("library.data.dir", "data");
+
+    private static final Map<String, StorageEngine> ENGINES = new ConcurrentHashMap<>();
+
+    private StorageEngines() {}
+
+    public static StorageEngine configured(String table, String defaultEngine) {
+        String name = System.getProperty("library.storage." + table,
+                System.getProperty("library.storage.engine", defaultEngine));
+        return create(name);
+    }
+
+    public static StorageEngine create(String name) {
+        return ENGINES.computeIfAbsent(name.toLowerCase(), key -> switch (key) {
+            case "csv" -> new CsvStorageEngine(DATA_DIR);
+            case "binary" -> new BinarySnapshotEngine(DATA_DIR);
+            case "journal" -> new JournalStorageEngine(DATA_DIR);
+            case "btree" -> new BTreeStorageEngine(DATA_DIR);
+            default -> throw new IllegalArgumentException("Unknown storage engine: " + name);
+        });
+    }
+}
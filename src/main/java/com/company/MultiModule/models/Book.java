@@ -1,6 +1,8 @@
 package com.company.MultiModule.models;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -10,7 +12,17 @@ public class Book {
     private final String author;
     private final String category;
     private final String isbn;
-    private boolean available;
+    // Borrowers claim a copy by CAS on this flag instead of locking the book
+    private volatile boolean available;
+
+    private static final VarHandle AVAILABLE;
+    static {
+        try {
+            AVAILABLE = MethodHandles.lookup().findVarHandle(Book.class, "available", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     protected Book(Builder<?> builder) {
         this.id = builder.id != null ? builder.id : UUID.randomUUID().toString();
@@ -21,6 +33,15 @@ public class Book {
         this.available = builder.available;
     }
 
+    // For views that read their fields from elsewhere and override every getter
+    protected Book() {
+        this.id = null;
+        this.title = null;
+        this.author = null;
+        this.category = null;
+        this.isbn = null;
+    }
+
     public String getId() { return id; }
     public String getTitle() { return title; }
     public String getAuthor() { return author; }
@@ -29,11 +50,18 @@ public class Book {
     public boolean isAvailable() { return available; }
     public void setAvailable(boolean available) { this.available = available; }
 
+    /**
+     * Atomically sets the availability to {@code update} if it is currently {@code expected}.
+     */
+    public boolean compareAndSetAvailable(boolean expected, boolean update) {
+        return AVAILABLE.compareAndSet(this, expected, update);
+    }
+
     @Override
     public String toString() {
         return String.format(
                 "Book{id='%s', title='%s', author='%s', category='%s', isbn='%s', available=%s}",
-                id, title, author, category, isbn, available
+                getId(), getTitle(), getAuthor(), getCategory(), getIsbn(), isAvailable()
         );
     }
 
@@ -42,12 +70,12 @@ public class Book {
         if (this == o) return true;
         if (!(o instanceof Book)) return false;
         Book book = (Book) o;
-        return Objects.equals(id, book.id);
+        return Objects.equals(getId(), book.getId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Objects.hash(getId());
     }
 
     public static class Builder<T extends Builder<T>> {
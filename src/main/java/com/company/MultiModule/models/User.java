@@ -11,7 +11,7 @@ public abstract class User {
     private final char[] password;
 
     protected User(UserBuilder<?> builder) {
-        this.id = builder.id;
+        this.id = builder.id != null ? builder.id : UUID.randomUUID().toString();
         this.name = builder.name;
         this.email = builder.email;
         this.password = builder.password != null ? builder.password.clone() : null;
@@ -26,6 +26,19 @@ public abstract class User {
         return password != null ? password.clone() : null;
     }
 
+    /**
+     * Compares a candidate password without copying the stored one.
+     * Runs in time independent of where the first mismatch is.
+     */
+    public boolean passwordMatches(char[] candidate) {
+        if (password == null || candidate == null || password.length != candidate.length) return false;
+        int diff = 0;
+        for (int i = 0; i < password.length; i++) {
+            diff |= password[i] ^ candidate[i];
+        }
+        return diff == 0;
+    }
+
     @Override
     public String toString() {
         return String.format("User{id='%s', name='%s', email='%s'}", id, name, email);
@@ -45,11 +58,19 @@ public abstract class User {
     }
 
     public static abstract class UserBuilder<T extends UserBuilder<T>> {
-        private final String id = UUID.randomUUID().toString();
+        private String id;
         private String name;
         private String email;
         private char[] password;
 
+        /**
+         * Restores a persisted id; when left unset a random UUID is assigned at build time.
+         */
+        public T id(String id) {
+            this.id = id;
+            return self();
+        }
+
         public T name(String name) {
             this.name = name;
             return self();
@@ -0,0 +1,98 @@
+package com.company.MultiModule.search;
+
+import com.company.MultiModule.models.Book;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counts of books per category and per author, and of available books per category.
+ * Counters are {@link LongAdder}s updated as books are added, removed or change availability,
+ * so a count is a hash lookup instead of a scan over the catalog.
+ */
+public class BookFacets {
+
+    private final Map<String, LongAdder> byCategory = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byAuthor = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> availableByCategory = new ConcurrentHashMap<>();
+
+    public void add(Book book) {
+        count(byCategory, book.getCategory(), 1);
+        count(byAuthor, book.getAuthor(), 1);
+        if (book.isAvailable()) count(availableByCategory, book.getCategory(), 1);
+    }
+
+    /**
+     * Removes a book, as counted with its current availability.
+     */
+    public void remove(Book book) {
+        count(byCategory, book.getCategory(), -1);
+        count(byAuthor, book.getAuthor(), -1);
+        if (book.isAvailable()) count(availableByCategory, book.getCategory(), -1);
+    }
+
+    /**
+     * Records that a book of the category was just borrowed ({@code false}) or returned ({@code true}).
+     */
+    public void availabilityChanged(String category, boolean available) {
+        count(availableByCategory, category, available ? 1 : -1);
+    }
+
+    public void clear() {
+        byCategory.clear();
+        byAuthor.clear();
+        availableByCategory.clear();
+    }
+
+    public long booksInCategory(String category) {
+        return sum(byCategory, category);
+    }
+
+    public long booksByAuthor(String author) {
+        return sum(byAuthor, author);
+    }
+
+    public long availableInCategory(String category) {
+        return sum(availableByCategory, category);
+    }
+
+    /**
+     * Book count of every category that currently has books, sorted by name.
+     */
+    public Map<String, Long> categoryCounts() {
+        return snapshot(byCategory);
+    }
+
+    public Map<String, Long> authorCounts() {
+        return snapshot(byAuthor);
+    }
+
+    public Map<String, Long> availableCounts() {
+        return snapshot(availableByCategory);
+    }
+
+    private static void count(Map<String, LongAdder> counters, String key, int delta) {
+        counters.computeIfAbsent(keyOf(key), k -> new LongAdder()).add(delta);
+    }
+
+    private static long sum(Map<String, LongAdder> counters, String key) {
+        LongAdder counter = counters.get(keyOf(key));
+        return counter == null ? 0 : counter.sum();
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((key, counter) -> {
+            long value = counter.sum();
+            if (value > 0) result.put(key, value);
+        });
+        return result;
+    }
+
+    // Missing values are counted under the empty string
+    private static String keyOf(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,654 @@
+package com.company.MultiModule.search;
+
+import com.company.MultiModule.models.Book;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory search index over the catalog.
+ * <ul>
+ *   <li>a token index (title, author and category words, lower-cased) for word and word-prefix queries,
+ *       with field-weighted term frequencies for BM25 ranking;</li>
+ *   <li>a trigram index over title and author, so substring queries keep the old {@code contains} semantics
+ *       while only checking the books that share every trigram of the query against their own title and
+ *       author, so no text is kept per book.</li>
+ * </ul>
+ * Fuzzy queries run a Levenshtein automaton over the sorted token dictionary, so a misspelt word only visits
+ * the tokens whose prefixes can still end within the allowed number of edits.
+ * Every book gets an int doc id in insertion order, so posting lists are sorted int arrays.
+ * Updates append a new doc and tombstone the old one; the index is rebuilt once tombstones outnumber live docs.
+ */
+public class BookIndex {
+
+    private static final int MIN_REBUILD_TOMBSTONES = 1024;
+    // A word in the title counts more than one in the author, which counts more than the category
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 1;
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+    // Keeps a trigram from spanning the end of the title and the start of the author
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Book[] docs = new Book[16];
+    private int[] lengths = new int[16];       // weighted number of words, for BM25 length normalization
+    private int[] idHashes = new int[16];      // hash of the book id
+    private long liveLength;
+    private int docCount;
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    // Live docs by book id: open addressing over doc + 1 (0 for empty), probed by the id's hash and checked
+    // against the book itself, so the index keeps no id string per book
+    private int[] docSlots = new int[32];
+
+    private final NavigableMap<String, Postings> tokens = new TreeMap<>();
+    // Sorted copy of the token keys for the fuzzy walk; dropped whenever a token is added
+    private volatile String[] dictionary;
+    private final Map<Long, IntList> trigrams = new HashMap<>();
+
+    // Docs containing a word, and the weighted number of times it occurs in each
+    private static final class Postings {
+        final IntList docs = new IntList();
+        final IntList freqs = new IntList();
+    }
+
+    /**
+     * Indexes a book, replacing the earlier version of the same id.
+     */
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(book.getId());
+            append(book);
+            rebuildIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a batch of books under one hold of the lock, checking for a rebuild once at the end.
+     */
+    public void addAll(Collection<? extends Book> books) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                removeDoc(book.getId());
+                append(book);
+            }
+            rebuildIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(bookId);
+            rebuildIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            docs = new Book[16];
+            lengths = new int[16];
+            idHashes = new int[16];
+            liveLength = 0;
+            docCount = 0;
+            deleted.clear();
+            deletedCount = 0;
+            docSlots = new int[32];
+            tokens.clear();
+            dictionary = null;
+            trigrams.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Books whose title or author contains the keyword, ignoring case, in insertion order.
+     */
+    public List<Book> contains(String keyword) {
+        lock.readLock().lock();
+        try {
+            List<Book> result = new ArrayList<>();
+            forEachSubstringMatch(keyword.toLowerCase(Locale.ROOT), doc -> result.add(docs[doc]));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Books matching every word of the query in title, author or category; the last word may be a prefix.
+     */
+    public List<Book> matchTokens(String query) {
+        List<String> words = tokenize(query);
+        lock.readLock().lock();
+        try {
+            List<Book> result = new ArrayList<>();
+            if (words.isEmpty()) return result;
+
+            for (int doc : tokenMatches(words)) {
+                if (!deleted.get(doc)) result.add(docs[doc]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked search: books matching every word of the query (the last one as a prefix), ordered by BM25 over
+     * title, author and category. Only the best {@code offset + limit} books are kept while scoring.
+     * When no book has all the words, falls back to title/author substring matches in catalog order.
+     */
+    public SearchPage search(String query, int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+
+        List<String> words = tokenize(query);
+        lock.readLock().lock();
+        try {
+            int[] candidates = words.isEmpty() ? new int[0] : tokenMatches(words);
+            int[] live = new int[candidates.length];
+            int liveCount = 0;
+            for (int doc : candidates) {
+                if (!deleted.get(doc)) live[liveCount++] = doc;
+            }
+            if (liveCount == 0) return substringPage(query, offset, limit);
+
+            List<Postings> terms = new ArrayList<>();
+            for (int i = 0; i < words.size() - 1; i++) terms.add(tokens.get(words.get(i)));
+            terms.addAll(prefixMatches(words.get(words.size() - 1)).values());
+            double[] weights = new double[terms.size()];
+            Arrays.fill(weights, 1.0);
+
+            return rankedPage(live, liveCount, score(terms, weights, live, liveCount), offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Typo-tolerant ranked search: every word of the query must match some token within its edit budget,
+     * which is one edit per three letters, capped at {@code maxEdits} (so words under three letters must
+     * match exactly). The first letter is never edited. Closer spellings score higher; results are paged
+     * like {@link #search}.
+     */
+    public SearchPage fuzzySearch(String query, int maxEdits, int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+        if (maxEdits < 0) throw new IllegalArgumentException("maxEdits must not be negative");
+
+        List<String> words = tokenize(query);
+        lock.readLock().lock();
+        try {
+            if (words.isEmpty()) return new SearchPage(List.of(), 0, offset);
+
+            List<IntList> lists = new ArrayList<>();
+            List<Postings> terms = new ArrayList<>();
+            List<Double> weights = new ArrayList<>();
+            for (String word : words) {
+                Map<String, Integer> matches = fuzzyMatches(word, Math.min(maxEdits, word.length() / 3));
+                if (matches.isEmpty()) return new SearchPage(List.of(), 0, offset);
+
+                List<Postings> expansions = new ArrayList<>(matches.size());
+                for (Map.Entry<String, Integer> match : matches.entrySet()) {
+                    Postings postings = tokens.get(match.getKey());
+                    expansions.add(postings);
+                    terms.add(postings);
+                    weights.add(1.0 / (1 + match.getValue()));
+                }
+                lists.add(union(expansions));
+            }
+
+            int[] candidates = intersect(lists);
+            int[] live = new int[candidates.length];
+            int liveCount = 0;
+            for (int doc : candidates) {
+                if (!deleted.get(doc)) live[liveCount++] = doc;
+            }
+            double[] termWeights = new double[weights.size()];
+            for (int i = 0; i < termWeights.length; i++) termWeights[i] = weights.get(i);
+
+            return rankedPage(live, liveCount, score(terms, termWeights, live, liveCount), offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The requested slice of the scored docs, best first; only the best offset + limit are kept while ranking
+    private SearchPage rankedPage(int[] live, int liveCount, double[] scores, int offset, int limit) {
+        int keep = (int) Math.min((long) offset + limit, liveCount);
+
+        // Min-heap of the best docs so far: the weakest (lowest score, then latest doc) sits on top
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, keep), (a, b) -> {
+            int byScore = Double.compare(scores[a], scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(live[b], live[a]);
+        });
+        for (int i = 0; i < liveCount && keep > 0; i++) {
+            if (best.size() < keep) {
+                best.add(i);
+            } else if (best.comparator().compare(i, best.peek()) > 0) {
+                best.poll();
+                best.add(i);
+            }
+        }
+
+        Integer[] ranked = best.toArray(new Integer[0]);
+        Arrays.sort(ranked, best.comparator().reversed());
+        List<Book> page = new ArrayList<>(Math.max(0, ranked.length - offset));
+        for (int i = offset; i < ranked.length; i++) page.add(docs[live[ranked[i]]]);
+        return new SearchPage(page, liveCount, offset);
+    }
+
+    /**
+     * Lower-case words of a text, split on anything that is not a letter or digit.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void append(Book book) {
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docCount * 2);
+            lengths = Arrays.copyOf(lengths, docCount * 2);
+            idHashes = Arrays.copyOf(idHashes, docCount * 2);
+        }
+        int doc = docCount++;
+        String text = (nullToEmpty(book.getTitle()) + FIELD_SEPARATOR + nullToEmpty(book.getAuthor())).toLowerCase(Locale.ROOT);
+        docs[doc] = book;
+        idHashes[doc] = book.getId().hashCode();
+        linkDoc(doc);
+
+        Map<String, Integer> freqs = new HashMap<>();
+        int length = countWords(freqs, book.getTitle(), TITLE_WEIGHT)
+                + countWords(freqs, book.getAuthor(), AUTHOR_WEIGHT)
+                + countWords(freqs, book.getCategory(), CATEGORY_WEIGHT);
+        for (Map.Entry<String, Integer> word : freqs.entrySet()) {
+            Postings postings = tokens.get(word.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                tokens.put(word.getKey(), postings);
+                dictionary = null;
+            }
+            postings.docs.add(doc);
+            postings.freqs.add(word.getValue());
+        }
+        lengths[doc] = length;
+        liveLength += length;
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            addPosting(trigrams.computeIfAbsent(trigram(text, i), t -> new IntList()), doc);
+        }
+    }
+
+    private static int countWords(Map<String, Integer> freqs, String field, int weight) {
+        List<String> words = tokenize(field);
+        for (String word : words) freqs.merge(word, weight, Integer::sum);
+        return words.size() * weight;
+    }
+
+    // A trigram that occurs twice in the same book is posted once
+    private static void addPosting(IntList postings, int doc) {
+        if (postings.last() != doc) postings.add(doc);
+    }
+
+    private void removeDoc(String bookId) {
+        int hash = bookId.hashCode();
+        int mask = docSlots.length - 1;
+        int i = mix(hash) & mask;
+        while (docSlots[i] != 0) {
+            int doc = docSlots[i] - 1;
+            if (idHashes[doc] == hash && bookId.equals(docs[doc].getId())) {
+                unlinkSlot(i);
+                deleted.set(doc);
+                deletedCount++;
+                liveLength -= lengths[doc];
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void linkDoc(int doc) {
+        int live = docCount - deletedCount;
+        if (live * 2 > docSlots.length) {
+            // Only live docs are linked, so the table is rebuilt from the tombstone bits
+            docSlots = new int[docSlots.length * 2];
+            for (int d = deleted.nextClearBit(0); d < docCount; d = deleted.nextClearBit(d + 1)) {
+                if (d != doc) placeDoc(d);
+            }
+        }
+        placeDoc(doc);
+    }
+
+    private void placeDoc(int doc) {
+        int mask = docSlots.length - 1;
+        int i = mix(idHashes[doc]) & mask;
+        while (docSlots[i] != 0) i = (i + 1) & mask;
+        docSlots[i] = doc + 1;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe run into the hole
+    private void unlinkSlot(int i) {
+        int mask = docSlots.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (docSlots[j] == 0) break;
+            int k = mix(idHashes[docSlots[j] - 1]) & mask;
+            boolean stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+            if (stays) continue;
+            docSlots[i] = docSlots[j];
+            i = j;
+        }
+        docSlots[i] = 0;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void rebuildIfSparse() {
+        if (deletedCount < MIN_REBUILD_TOMBSTONES || deletedCount < docCount - deletedCount) return;
+
+        List<Book> live = new ArrayList<>(docCount - deletedCount);
+        for (int doc = 0; doc < docCount; doc++) {
+            if (!deleted.get(doc)) live.add(docs[doc]);
+        }
+        docs = new Book[Math.max(16, live.size())];
+        lengths = new int[docs.length];
+        idHashes = new int[docs.length];
+        liveLength = 0;
+        docCount = 0;
+        deleted.clear();
+        deletedCount = 0;
+        docSlots = new int[32];
+        tokens.clear();
+        dictionary = null;
+        trigrams.clear();
+        for (Book book : live) append(book);
+    }
+
+    // Docs (sorted, tombstones included) having every word; the last word matches any token it prefixes
+    private int[] tokenMatches(List<String> words) {
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i < words.size() - 1; i++) {
+            Postings postings = tokens.get(words.get(i));
+            if (postings == null) return new int[0];
+            lists.add(postings.docs);
+        }
+        Collection<Postings> expansions = prefixMatches(words.get(words.size() - 1)).values();
+        if (expansions.isEmpty()) return new int[0];
+        lists.add(union(expansions));
+        return intersect(lists);
+    }
+
+    // Sorted docs having any of the tokens
+    private IntList union(Collection<Postings> expansions) {
+        if (expansions.size() == 1) return expansions.iterator().next().docs;
+
+        BitSet union = new BitSet(docCount);
+        for (Postings postings : expansions) {
+            for (int i = 0; i < postings.docs.size(); i++) union.set(postings.docs.get(i));
+        }
+        IntList merged = new IntList(union.cardinality());
+        for (int doc = union.nextSetBit(0); doc >= 0; doc = union.nextSetBit(doc + 1)) merged.add(doc);
+        return merged;
+    }
+
+    // Tokens within maxEdits of the word that start with the same letter, with their edit distance. Typos in
+    // the first letter are rare, and fixing it keeps the walk to one slice of the dictionary.
+    // Walks the slice keeping one Levenshtein row per character of the current token; the rows of the prefix
+    // shared with the previous token are reused, and once a row has no cell within maxEdits every token under
+    // that prefix is skipped.
+    private Map<String, Integer> fuzzyMatches(String word, int maxEdits) {
+        Map<String, Integer> matches = new HashMap<>();
+        if (maxEdits == 0) {
+            if (tokens.containsKey(word)) matches.put(word, 0);
+            return matches;
+        }
+
+        // Readers may race to rebuild the copy, but writers are excluded, so every copy is the same
+        String[] dict = dictionary;
+        if (dict == null) dictionary = dict = tokens.keySet().toArray(new String[0]);
+
+        int m = word.length();
+        char first = word.charAt(0);
+        int end = lowerBound(dict, String.valueOf((char) (first + 1)));
+        int[][] rows = new int[m + maxEdits + 1][m + 1];
+        for (int j = 0; j <= m; j++) rows[0][j] = j;
+
+        String previous = "";
+        int valid = 0;   // rows[0..valid] hold the distances for the first characters of previous
+        int i = lowerBound(dict, String.valueOf(first));
+        while (i < end) {
+            String token = dict[i];
+            int depth = Math.min(valid, sharedPrefix(previous, token));
+            boolean dead = false;
+            while (depth < token.length()) {
+                if (depth == rows.length - 1) {
+                    // Already maxEdits longer than the word; one more character cannot match
+                    dead = true;
+                    depth++;
+                    break;
+                }
+                int[] above = rows[depth];
+                int[] row = rows[depth + 1];
+                char c = token.charAt(depth);
+                row[0] = depth + 1;
+                int min = row[0];
+                for (int j = 1; j <= m; j++) {
+                    int cost = word.charAt(j - 1) == c ? 0 : 1;
+                    row[j] = Math.min(Math.min(above[j] + 1, row[j - 1] + 1), above[j - 1] + cost);
+                    min = Math.min(min, row[j]);
+                }
+                depth++;
+                if (min > maxEdits) {
+                    dead = true;
+                    break;
+                }
+            }
+
+            previous = token;
+            if (dead) {
+                valid = depth - 1;
+                i = skipPrefix(dict, i, token, depth);
+            } else {
+                valid = depth;
+                if (rows[depth][m] <= maxEdits) matches.put(token, rows[depth][m]);
+                i++;
+            }
+        }
+        return matches;
+    }
+
+    // Index of the first token not below key
+    private static int lowerBound(String[] dict, String key) {
+        int i = Arrays.binarySearch(dict, key);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    // Index of the first token after from that does not start with the first length characters of prefix
+    private static int skipPrefix(String[] dict, int from, String prefix, int length) {
+        int lo = from + 1;
+        int hi = lo;
+        int step = 1;
+        while (hi < dict.length && dict[hi].regionMatches(0, prefix, 0, length)) {
+            lo = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        hi = Math.min(hi, dict.length);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dict[mid].regionMatches(0, prefix, 0, length)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int sharedPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    private SortedMap<String, Postings> prefixMatches(String prefix) {
+        return tokens.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    // BM25 of each candidate, summed over the matched tokens, each scaled by its weight
+    private double[] score(List<Postings> terms, double[] weights, int[] candidates, int count) {
+        double[] scores = new double[count];
+        int liveDocs = docCount - deletedCount;
+        double avgLength = Math.max(1.0, (double) liveLength / Math.max(1, liveDocs));
+
+        for (int t = 0; t < terms.size(); t++) {
+            Postings term = terms.get(t);
+            // Document frequency counts tombstoned docs too, which only slightly flattens idf until the next rebuild
+            int df = term.docs.size();
+            double idf = weights[t] * Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+            // Walk whichever side is shorter and look the docs up in the other
+            if (df < count) {
+                for (int p = 0; p < df; p++) {
+                    int i = Arrays.binarySearch(candidates, 0, count, term.docs.get(p));
+                    if (i >= 0) scores[i] += bm25(idf, term.freqs.get(p), lengths[candidates[i]], avgLength);
+                }
+            } else {
+                int cursor = 0;
+                for (int i = 0; i < count && cursor < df; i++) {
+                    cursor = gallop(term.docs, candidates[i], cursor);
+                    if (cursor < df && term.docs.get(cursor) == candidates[i]) {
+                        scores[i] += bm25(idf, term.freqs.get(cursor), lengths[candidates[i]], avgLength);
+                    }
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static double bm25(double idf, int tf, int length, double avgLength) {
+        double norm = BM25_K1 * (1 - BM25_B + BM25_B * length / avgLength);
+        return idf * tf * (BM25_K1 + 1) / (tf + norm);
+    }
+
+    // Substring matches in catalog order; only the requested slice is collected
+    private SearchPage substringPage(String query, int offset, int limit) {
+        List<Book> page = new ArrayList<>(Math.min(limit, 64));
+        int[] matches = {0};
+        forEachSubstringMatch(query.toLowerCase(Locale.ROOT), doc -> {
+            if (matches[0] >= offset && page.size() < limit) page.add(docs[doc]);
+            matches[0]++;
+        });
+        return new SearchPage(page, matches[0], offset);
+    }
+
+    // Live docs whose title/author text contains k (already lower-cased), in doc order
+    private void forEachSubstringMatch(String k, IntConsumer consumer) {
+        if (k.length() < 3) {
+            // Too short for a trigram; check every live book
+            for (int doc = 0; doc < docCount; doc++) {
+                if (!deleted.get(doc) && textContains(docs[doc], k)) consumer.accept(doc);
+            }
+            return;
+        }
+
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= k.length(); i++) {
+            IntList postings = trigrams.get(trigram(k, i));
+            if (postings == null) return;
+            lists.add(postings);
+        }
+        for (int doc : intersect(lists)) {
+            if (!deleted.get(doc) && textContains(docs[doc], k)) consumer.accept(doc);
+        }
+    }
+
+    // Whether the lower-cased title or author contains k; read from the book rather than kept per doc
+    private static boolean textContains(Book book, String k) {
+        return lower(book.getTitle()).contains(k) || lower(book.getAuthor()).contains(k);
+    }
+
+    private static String lower(String s) {
+        return nullToEmpty(s).toLowerCase(Locale.ROOT);
+    }
+
+    // Intersects the lists from shortest to longest, so the candidates shrink as early as possible
+    private static int[] intersect(List<IntList> lists) {
+        lists.sort(Comparator.comparingInt(IntList::size));
+        int[] result = lists.get(0).toArray();
+        int count = result.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            IntList other = lists.get(l);
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count; i++) {
+                from = gallop(other, result[i], from);
+                if (from == other.size()) break;
+                if (other.get(from) == result[i]) result[kept++] = result[i];
+            }
+            count = kept;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // First index at or after from whose value is >= target, probing 1, 2, 4... ahead before a binary search
+    private static int gallop(IntList list, int target, int from) {
+        int size = list.size();
+        int step = 1;
+        int hi = from;
+        while (hi < size && list.get(hi) < target) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        hi = Math.min(hi, size);
+        while (from < hi) {
+            int mid = (from + hi) >>> 1;
+            if (list.get(mid) < target) from = mid + 1;
+            else hi = mid;
+        }
+        return from;
+    }
+
+    private static long trigram(String text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
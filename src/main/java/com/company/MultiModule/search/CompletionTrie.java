@@ -0,0 +1,252 @@
+package com.company.MultiModule.search;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Prefix-completion trie over display strings (titles, authors) with popularity weights.
+ * <p>
+ * Keys are lower-cased; every node caches its {@value #TOP_K} heaviest completions, kept up to date
+ * along the inserted path, so a lookup is a walk down the prefix plus a copy of at most K strings.
+ * Children are stored as sorted char arrays and searched with a binary search.
+ * <p>
+ * The trie is written in preorder (label, terminal entry, child count, children) and read back without
+ * touching the catalog; the cached completions are rebuilt bottom-up while reading.
+ */
+public class CompletionTrie {
+
+    public static final int TOP_K = 8;
+
+    private static final int MAGIC = 0x4C435452; // "LCTR"
+    private static final int VERSION = 1;
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private static final class Node {
+        char[] labels = NO_LABELS;
+        Node[] children = NO_NODES;
+        int childCount;
+
+        String value;   // display string when a completion ends here
+        String key;     // its lower-cased key
+        long weight;
+
+        Node[] top = NO_NODES;  // heaviest terminal nodes below (and at) this node
+        int topCount;
+    }
+
+    // Heavier first, then alphabetical so equal weights come out in a stable order
+    private static final Comparator<Node> BY_WEIGHT = (a, b) -> {
+        int byWeight = Long.compare(b.weight, a.weight);
+        return byWeight != 0 ? byWeight : a.key.compareTo(b.key);
+    };
+
+    private Node root = new Node();
+    private boolean modified;
+
+    /**
+     * Adds {@code delta} to the weight of a completion, creating it when new.
+     * A weight that drops to zero or below removes the completion.
+     */
+    public synchronized void add(String display, long delta) {
+        if (display == null || display.isBlank() || delta == 0) return;
+
+        String key = display.toLowerCase(Locale.ROOT);
+        Node[] path = new Node[key.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            Node child = child(node, key.charAt(i));
+            if (child == null) {
+                if (delta < 0) return; // nothing to take away
+                child = insertChild(node, key.charAt(i));
+            }
+            node = child;
+            path[i + 1] = node;
+        }
+
+        if (node.value == null) {
+            if (delta < 0) return;
+            node.value = display;
+            node.key = key;
+        }
+        node.weight += delta;
+        if (node.weight <= 0) {
+            node.value = null;
+            node.weight = 0;
+        }
+
+        for (int i = path.length - 1; i >= 0; i--) {
+            if (delta > 0) offer(path[i], node);
+            else recomputeTop(path[i]);
+        }
+        modified = true;
+    }
+
+    public void remove(String display, long weight) {
+        add(display, -weight);
+    }
+
+    /**
+     * Up to {@code limit} (at most {@value #TOP_K}) completions of the prefix, heaviest first.
+     */
+    public synchronized List<String> complete(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = child(node, key.charAt(i));
+        }
+        if (node == null) return List.of();
+
+        int count = Math.min(limit, node.topCount);
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) result.add(node.top[i].value);
+        return result;
+    }
+
+    public synchronized long weightOf(String display) {
+        String key = display.toLowerCase(Locale.ROOT);
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = child(node, key.charAt(i));
+        }
+        return node == null || node.value == null ? 0 : node.weight;
+    }
+
+    public synchronized void clear() {
+        root = new Node();
+        modified = true;
+    }
+
+    /**
+     * Whether the trie changed since it was last saved or loaded.
+     */
+    public synchronized boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Writes the trie, tagged with a caller-defined stamp describing the data it was built from.
+     */
+    public synchronized void save(String filePath, long stamp) throws IOException {
+        Path path = Paths.get(filePath);
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Path tempFile = Files.createTempFile(path.toAbsolutePath().getParent(), "temp-", ".trie");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp);
+            writeNode(out, root);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+        modified = false;
+    }
+
+    /**
+     * Replaces the contents with a saved trie if the file exists and carries the expected stamp.
+     * Returns false, leaving the trie as it was, otherwise.
+     */
+    public synchronized boolean load(String filePath, long expectedStamp) throws IOException {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            if (in.readLong() != expectedStamp) return false;
+            root = readNode(in, new StringBuilder());
+        }
+        modified = false;
+        return true;
+    }
+
+    private static void writeNode(DataOutputStream out, Node node) throws IOException {
+        out.writeBoolean(node.value != null);
+        if (node.value != null) {
+            out.writeUTF(node.value);
+            out.writeLong(node.weight);
+        }
+        out.writeInt(node.childCount);
+        for (int i = 0; i < node.childCount; i++) {
+            out.writeChar(node.labels[i]);
+            writeNode(out, node.children[i]);
+        }
+    }
+
+    private static Node readNode(DataInputStream in, StringBuilder key) throws IOException {
+        Node node = new Node();
+        if (in.readBoolean()) {
+            node.value = in.readUTF();
+            node.key = key.toString();
+            node.weight = in.readLong();
+        }
+        int childCount = in.readInt();
+        node.labels = new char[childCount];
+        node.children = new Node[childCount];
+        node.childCount = childCount;
+        for (int i = 0; i < childCount; i++) {
+            node.labels[i] = in.readChar();
+            key.append(node.labels[i]);
+            node.children[i] = readNode(in, key);
+            key.setLength(key.length() - 1);
+        }
+        recomputeTop(node);
+        return node;
+    }
+
+    private static Node child(Node node, char label) {
+        int i = Arrays.binarySearch(node.labels, 0, node.childCount, label);
+        return i >= 0 ? node.children[i] : null;
+    }
+
+    private static Node insertChild(Node node, char label) {
+        int i = -(Arrays.binarySearch(node.labels, 0, node.childCount, label) + 1);
+        if (node.childCount == node.labels.length) {
+            int capacity = Math.max(2, node.childCount * 2);
+            node.labels = Arrays.copyOf(node.labels, capacity);
+            node.children = Arrays.copyOf(node.children, capacity);
+        }
+        System.arraycopy(node.labels, i, node.labels, i + 1, node.childCount - i);
+        System.arraycopy(node.children, i, node.children, i + 1, node.childCount - i);
+        Node child = new Node();
+        node.labels[i] = label;
+        node.children[i] = child;
+        node.childCount++;
+        return child;
+    }
+
+    // A completion got heavier: it can only move up in, or enter, this node's list
+    private static void offer(Node node, Node terminal) {
+        for (int i = 0; i < node.topCount; i++) {
+            if (node.top[i] == terminal) {
+                Arrays.sort(node.top, 0, node.topCount, BY_WEIGHT);
+                return;
+            }
+        }
+        if (node.topCount < TOP_K) {
+            if (node.top.length == node.topCount) node.top = Arrays.copyOf(node.top, Math.min(TOP_K, node.topCount * 2 + 1));
+            node.top[node.topCount++] = terminal;
+        } else if (BY_WEIGHT.compare(terminal, node.top[TOP_K - 1]) < 0) {
+            node.top[TOP_K - 1] = terminal;
+        } else {
+            return;
+        }
+        Arrays.sort(node.top, 0, node.topCount, BY_WEIGHT);
+    }
+
+    // A completion got lighter or went away: rebuild the list from this node and its children's lists
+    private static void recomputeTop(Node node) {
+        List<Node> candidates = new ArrayList<>();
+        if (node.value != null) candidates.add(node);
+        for (int i = 0; i < node.childCount; i++) {
+            Node child = node.children[i];
+            for (int j = 0; j < child.topCount; j++) candidates.add(child.top[j]);
+        }
+        candidates.sort(BY_WEIGHT);
+        node.topCount = Math.min(TOP_K, candidates.size());
+        node.top = candidates.subList(0, node.topCount).toArray(NO_NODES);
+    }
+}
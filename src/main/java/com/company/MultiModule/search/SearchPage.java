@@ -0,0 +1,15 @@
+package com.company.MultiModule.search;
+
+import com.company.MultiModule.models.Book;
+
+import java.util.List;
+
+/**
+ * One page of search results, best match first, and how many books matched in total.
+ */
+public record SearchPage(List<Book> books, int totalMatches, int offset) {
+
+    public boolean hasMore() {
+        return offset + books.size() < totalMatches;
+    }
+}
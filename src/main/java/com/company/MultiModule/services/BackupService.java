@@ -1,17 +1,21 @@
 package com.company.MultiModule.services;
 
+import com.company.MultiModule.Repository.StorageEngines;
+
 import java.io.IOException;
 import java.nio.file.*;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.stream.Stream;
 
 public class BackupService {
 
-    private static final String USER_CSV_FILE = "data/users.csv";
-    private static final String BOOK_CSV_FILE = "data/books.csv";
-    private static final String BORROW_CSV_FILE = "data/borrow.csv";
-    private static final String BACKUP_DIR = "data/backup";
+    // Every file of these tables is backed up, whatever storage engine wrote it (.csv, .bin, .log, .journal)
+    private static final List<String> TABLES = List.of("users", "books", "borrow");
+    private static final String BACKUP_DIR = StorageEngines.DATA_DIR + "/backup";
     private static final long BACKUP_INTERVAL_MINUTES = 5;
 
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
@@ -38,10 +42,12 @@ public class BackupService {
     }
 
     /**
-     * Starts automatic periodic backup at fixed intervals.
+     * Starts automatic periodic backup at fixed intervals. Each backup runs on the persistence writer thread,
+     * so it never copies a table file while a save is rewriting it.
      */
     public void startPeriodicBackup() {
-        scheduler.scheduleAtFixedRate(this::backupFiles, 0, BACKUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        scheduler.scheduleAtFixedRate(() -> PersistenceService.getInstance().submit("backup", this::backupFiles),
+                0, BACKUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
         System.out.println(CYAN + "[INFO] Periodic backup started (every " + BACKUP_INTERVAL_MINUTES + " minutes)." + RESET);
     }
 
@@ -66,9 +72,11 @@ public class BackupService {
             Files.createDirectories(Paths.get(BACKUP_DIR));
             String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm").format(new Date());
 
-            copyFile(USER_CSV_FILE, BACKUP_DIR + "/users_" + timestamp + ".csv");
-            copyFile(BOOK_CSV_FILE, BACKUP_DIR + "/books_" + timestamp + ".csv");
-            copyFile(BORROW_CSV_FILE, BACKUP_DIR + "/borrow_" + timestamp + ".csv");
+            for (Path source : tableFiles()) {
+                String name = source.getFileName().toString();
+                int dot = name.indexOf('.');
+                copyFile(source.toString(), BACKUP_DIR + "/" + name.substring(0, dot) + "_" + timestamp + name.substring(dot));
+            }
 
             System.out.println(GREEN + "[SUCCESS] Backup completed at " + timestamp + RESET);
         } catch (IOException e) {
@@ -76,6 +84,18 @@ public class BackupService {
         }
     }
 
+    private List<Path> tableFiles() throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(StorageEngines.DATA_DIR))) {
+            files.filter(Files::isRegularFile).forEach(path -> {
+                String name = path.getFileName().toString();
+                int dot = name.indexOf('.');
+                if (dot > 0 && TABLES.contains(name.substring(0, dot))) result.add(path);
+            });
+        }
+        return result;
+    }
+
     private void copyFile(String sourcePath, String destPath) throws IOException {
         Path source = Paths.get(sourcePath);
         Path dest = Paths.get(destPath);
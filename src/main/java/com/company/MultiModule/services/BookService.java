@@ -1,24 +1,62 @@
 package com.company.MultiModule.services;
 
-import com.company.MultiModule.Repository.CsvStorage;
+import com.company.MultiModule.Repository.CompactBookStore;
+import com.company.MultiModule.Repository.DeltaStorageEngine;
+import com.company.MultiModule.Repository.ParallelCsvImporter;
+import com.company.MultiModule.Repository.StorageEngines;
 import com.company.MultiModule.exceptions.BookNotFound;
 import com.company.MultiModule.exceptions.LibraryException;
 import com.company.MultiModule.models.Book;
+import com.company.MultiModule.search.BookFacets;
+import com.company.MultiModule.search.CompletionTrie;
+import com.company.MultiModule.search.BookIndex;
+import com.company.MultiModule.search.SearchPage;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class BookService {
 
-    private static final String BOOK_CSV_FILE = "data/books.csv";
+    private static final String BOOK_TABLE = "books";
+    private static final String[] BOOK_COLUMNS = {"id", "isbn", "title", "author", "category", "available"};
+    private static final String COMPLETIONS_FILE = StorageEngines.DATA_DIR + "/books.completions";
+    // Most typos fuzzy search forgives in one word
+    private static final int MAX_EDITS = Integer.getInteger("library.search.maxEdits", 2);
 
 
     private static final BookService instance = new BookService();
-    private final Map<String, Book> books = new HashMap<>();
+    // Column store of the catalog, also indexed by normalized ISBN; reads never lock, so lookups scale with
+    // the number of reader threads
+    private final CompactBookStore books = new CompactBookStore(BookService::isbnKey);
+    // Serializes adds and removals, so the catalog and its indexes change together. One lock: the store and the
+    // search index below take a single writer lock each, so finer locking here would buy no parallel writes.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Binary snapshots by default; an existing books.csv is imported on first load.
+    // Saves only append changed books to a patch that is merged into the snapshot at compaction.
+    private final DeltaStorageEngine storage =
+            new DeltaStorageEngine(StorageEngines.configured(BOOK_TABLE, "binary"), StorageEngines.DATA_DIR);
+    // Token and trigram index behind search()
+    private final BookIndex index = new BookIndex();
+    // Bumped on every add/remove; the shared catalog snapshot is rebuilt only when it is stale
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private volatile CatalogView catalog = new CatalogView(new Book[0], 0);
+    // Per category/author counters for browsing and reports
+    private final BookFacets facets = new BookFacets();
+    // Title and author completions, weighted by number of books and borrows; saved next to the catalog
+    private final CompletionTrie completions = new CompletionTrie();
+    // XOR of the book ids' hashes; with the book count it tells whether a saved trie matches the catalog
+    private final AtomicInteger idHash = new AtomicInteger();
+    // Set while loading, when the trie is restored from disk instead of rebuilt book by book.
+    // Volatile because recordBorrow reads it without the write lock.
+    private volatile boolean deferCompletions;
+    // Ids of books added/changed or removed since the last save
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<String> removed = ConcurrentHashMap.newKeySet();
 
     private BookService() {
         // Dummy data
@@ -31,7 +69,7 @@ public class BookService {
 //        books.put(book.getId(), book);
 
 
-        if (!Files.exists(Paths.get(BOOK_CSV_FILE))) {
+        if (!storage.exists(BOOK_TABLE)) {
             // Add dummy books only on first run
             addBook(new Book.Builder<>()
                     .title("Clean Code")
@@ -68,7 +106,12 @@ public class BookService {
                     .isbn("00005")
                     .build());
 
-            saveToCsv(); // Save to disk
+            // Written here, not on the persistence writer: a save running there would wait for this class to initialize
+            try {
+                persist();
+            } catch (IOException e) {
+                System.out.println(" Failed to save books: " + e.getMessage());
+            }
         }
 
 
@@ -78,20 +121,129 @@ public class BookService {
         return instance;
     }
 
+    /**
+     * Every book, as a read-only snapshot; see {@link #catalog()}.
+     */
     public List<Book> listAllBooks() {
-        return new ArrayList<>(books.values());
+        return catalog();
+    }
+
+    /**
+     * Consistent read-only view of the catalog. The snapshot is shared until the next add or remove,
+     * so repeated listing, paging and reporting do not copy the catalog.
+     */
+    public CatalogView catalog() {
+        CatalogView current = catalog;
+        long version = catalogVersion.get();
+        if (current.version() == version) return current;
+
+        // A change racing with the copy bumps the version again, so a stale copy is never reused
+        CatalogView fresh = new CatalogView(books.values().toArray(new Book[0]), version);
+        catalog = fresh;
+        return fresh;
     }
 
+    /**
+     * Books whose title or author contains the keyword, ignoring case.
+     */
     public List<Book> search(String keyword) {
-        String k = keyword.toLowerCase();
-        return books.values().stream()
-                .filter(b -> b.getTitle().toLowerCase().contains(k)
-                        || b.getAuthor().toLowerCase().contains(k))
-                .collect(Collectors.toList());
+        return index.contains(keyword);
+    }
+
+    /**
+     * Ranked, paged search over title, author and category; see {@link BookIndex#search}.
+     */
+    public SearchPage search(String query, int offset, int limit) {
+        return index.search(query, offset, limit);
+    }
+
+    /**
+     * Like {@link #search(String, int, int)}, but tolerates misspelt words; see {@link BookIndex#fuzzySearch}.
+     */
+    public SearchPage fuzzySearch(String query, int offset, int limit) {
+        return index.fuzzySearch(query, MAX_EDITS, offset, limit);
+    }
+
+    /**
+     * Adds a book, or replaces the book with the same id. ISBNs are unique: returns false, and changes
+     * nothing, when a different book already has this ISBN.
+     */
+    public boolean addBook(Book book) {
+        if (!putBook(book)) return false;
+        removed.remove(book.getId());
+        dirty.add(book.getId());
+        return true;
+    }
+
+    // False when a different book already has the ISBN
+    private boolean putBook(Book book) {
+        writeLock.lock();
+        try {
+            return storeBook(book);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Stores and indexes the book unless another book owns its ISBN; the caller holds the write lock
+    private boolean storeBook(Book book) {
+        Book owner = books.findByIsbn(book.getIsbn());
+        if (owner != null && !owner.getId().equals(book.getId())) return false;
+
+        Book previous = books.put(book.getId(), book);
+        // Index the stored view rather than the caller's object, so the index does not keep the book's strings alive
+        book = books.get(book.getId());
+        catalogVersion.incrementAndGet();
+        index.add(book);
+        facets.add(book);
+        addCompletions(book, 1);
+        hashId(book.getId());
+        if (previous != null) {
+            facets.remove(previous);
+            addCompletions(previous, -1);
+            hashId(previous.getId());
+        }
+        return true;
+    }
+
+    private void addCompletions(Book book, long weight) {
+        if (deferCompletions) return;
+        completions.add(book.getTitle(), weight);
+        completions.add(book.getAuthor(), weight);
+    }
+
+    private void hashId(String id) {
+        int h = id.hashCode();
+        idHash.accumulateAndGet(h, (a, b) -> a ^ b);
+    }
+
+    private long catalogStamp() {
+        return ((long) books.size() << 32) | (idHash.get() & 0xffffffffL);
     }
 
-    public void addBook(Book book) {
-        books.put(book.getId(), book);
+    /**
+     * Up to {@code limit} titles and authors starting with the prefix, most popular first.
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        return completions.complete(prefix, limit);
+    }
+
+    /**
+     * Counts a borrow towards the popularity of the book's title and author completions.
+     */
+    public void recordBorrow(String id) {
+        Book b = books.get(id);
+        if (b != null) addCompletions(b, 1);
+    }
+
+    // ISBNs compare case-insensitively and ignore hyphens and spaces
+    private static String isbnKey(String isbn) {
+        StringBuilder key = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && !Character.isWhitespace(c)) key.append(Character.toUpperCase(c));
+        }
+        return key.toString();
     }
 
     public Book findById(String id) {
@@ -105,20 +257,49 @@ public class BookService {
 
     public void setAvailability(String id, boolean available) {
         Book b = books.get(id);
-        if (b != null) b.setAvailable(available);
+        if (b != null && b.compareAndSetAvailable(!available, available)) availabilityChanged(b, available);
+    }
+
+    /**
+     * Takes the book's copy if it is available: a single CAS, no lock. False when it is already out.
+     */
+    public boolean tryClaim(Book book) {
+        if (!book.compareAndSetAvailable(true, false)) return false;
+        availabilityChanged(book, false);
+        return true;
+    }
+
+    /**
+     * Puts a claimed copy back; false when it was not out.
+     */
+    public boolean release(Book book) {
+        if (!book.compareAndSetAvailable(false, true)) return false;
+        availabilityChanged(book, true);
+        return true;
+    }
+
+    private void availabilityChanged(Book book, boolean available) {
+        facets.availabilityChanged(book.getCategory(), available);
+        dirty.add(book.getId());
+    }
+
+    /**
+     * Live book counts per category, per author and of available books per category.
+     */
+    public BookFacets facets() {
+        return facets;
     }
 
     public boolean existsByIsbn(String isbn) {
-        return books.values().stream()
-                .anyMatch(b -> b.getIsbn().equalsIgnoreCase(isbn));
+        return books.findByIsbn(isbn) != null;
     }
 
     public Book findByIsbn(String isbn) throws LibraryException {
-        return books.values().stream()
-                .filter(b -> b.getIsbn().equalsIgnoreCase(isbn))
-                .findFirst()
-                .orElseThrow(() -> new BookNotFound("Book Not Found with ISBN : " + isbn));
-
+        Book book = books.findByIsbn(isbn);
+        if (book == null) {
+            throw new BookNotFound("Book Not Found with ISBN : " + isbn);
+        }
+        return book;
     }
 
 
@@ -129,73 +310,234 @@ public class BookService {
 
     // file utility
 
+    /**
+     * Persists the books added, changed or removed since the last save, on the persistence writer thread.
+     */
     public void saveToCsv() {
         try {
-            List<String> lines = new ArrayList<>();
-            lines.add("id,isbn,title,author,category,available");
-
-            for (Book b : books.values()) {
-                lines.add(String.join(",",
-                        b.getId(),
-                        escape(b.getIsbn()),
-                        escape(b.getTitle()),
-                        escape(b.getAuthor()),
-                        escape(b.getCategory()),
-                        String.valueOf(b.isAvailable())
-                ));
-            }
+            int[] changed = {0};
+            PersistenceService.getInstance().saveNow(BOOK_TABLE, () -> changed[0] = persist());
+            System.out.println(" Books saved (" + storage.name() + ", " + changed[0] + " changed).");
+        } catch (IOException e) {
+            System.out.println(" Failed to save books: " + e.getMessage());
+        }
+    }
 
-            CsvStorage.save(BOOK_CSV_FILE, lines);
-            System.out.println(" Books saved to CSV.");
+    /**
+     * Like {@link #saveToCsv()}, but runs on the persistence writer thread.
+     */
+    public CompletableFuture<Void> saveAsync() {
+        return PersistenceService.getInstance().submit(BOOK_TABLE, this::persist);
+    }
+
+    // Writes the pending delta and returns how many books it covered
+    private int persist() throws IOException {
+        // Take the ids before reading the books, so a change made meanwhile marks its book dirty again
+        List<String> changed = new ArrayList<>(dirty);
+        dirty.removeAll(changed);
+        List<String> gone = new ArrayList<>(removed);
+        removed.removeAll(gone);
+
+        List<String[]> rows = new ArrayList<>(changed.size());
+        for (String id : changed) {
+            Book b = books.get(id);
+            if (b != null) rows.add(rowOf(b));
+        }
+
+        try {
+            storage.writeDelta(BOOK_TABLE, BOOK_COLUMNS, rows, gone);
         } catch (IOException e) {
-            System.out.println(" Failed to save books to CSV: " + e.getMessage());
+            dirty.addAll(changed);
+            removed.addAll(gone);
+            throw e;
         }
+        saveCompletions();
+        return rows.size() + gone.size();
+    }
+
+    private void saveCompletions() throws IOException {
+        if (completions.isModified()) completions.save(COMPLETIONS_FILE, catalogStamp());
     }
 
     public void loadFromCsv() {
         try {
-            List<String> lines = CsvStorage.load(BOOK_CSV_FILE);
-            if (lines.size() <= 1) return; // no data
-
-            books.clear();
-            for (int i = 1; i < lines.size(); i++) {
-                String[] tokens = lines.get(i).split(",", -1);
-                if (tokens.length < 6) continue;
+            boolean[] loaded = {false};
+            int[] duplicates = {0};
+            deferCompletions = true;
+            storage.read(BOOK_TABLE, tokens -> {
+                if (!loaded[0]) {
+                    writeLock.lock();
+                    try {
+                        books.clear();
+                        catalogVersion.incrementAndGet();
+                        index.clear();
+                        facets.clear();
+                        idHash.set(0);
+                    } finally {
+                        writeLock.unlock();
+                    }
+                    loaded[0] = true;
+                }
+                if (tokens.length < 6) return;
 
                 Book book = new Book.Builder<>()
-                        .isbn(unescape(tokens[1]))
-                        .title(unescape(tokens[2]))
-                        .author(unescape(tokens[3]))
-                        .category(unescape(tokens[4]))
+                        .id(tokens[0])
+                        .isbn(tokens[1])
+                        .title(tokens[2])
+                        .author(tokens[3])
+                        .category(tokens[4])
                         .available(Boolean.parseBoolean(tokens[5]))
                         .build();
+                if (!putBook(book)) duplicates[0]++;
+            });
+            deferCompletions = false;
+            if (!loaded[0]) return; // no data
+
+            // Restore the saved trie when it was built from exactly these books, otherwise rebuild it
+            if (!completions.load(COMPLETIONS_FILE, catalogStamp())) {
+                completions.clear();
+                for (Book book : books.values()) addCompletions(book, 1);
+            }
 
-                // Inject the original ID using reflection
-                Field idField = Book.class.getDeclaredField("id");
-                idField.setAccessible(true);
-                idField.set(book, tokens[0]);
+            // The map now mirrors what is stored
+            dirty.clear();
+            removed.clear();
 
-                books.put(book.getId(), book);
+            System.out.println(" Books loaded (" + storage.name() + ").");
+            if (duplicates[0] > 0) {
+                System.out.println(" Skipped " + duplicates[0] + " stored books whose ISBN was already taken.");
             }
-
-            System.out.println(" Books loaded from CSV.");
         } catch (Exception e) {
-            System.out.println(" Failed to load books from CSV: " + e.getMessage());
+            System.out.println(" Failed to load books: " + e.getMessage());
+        } finally {
+            deferCompletions = false;
         }
     }
 
 
-    private String escape(String s) {
-        return s.replace(",", "%2C"); // basic CSV escaping
+    /**
+     * Bulk-imports a partner catalog in the books.csv layout, parsing it in parallel, then writes
+     * the whole catalog through the storage engine in one pass. Returns the rows that were rejected,
+     * including books whose id or ISBN is already in the catalog or earlier in the file.
+     */
+    public List<String> importCsv(String filePath) throws IOException {
+        ParallelCsvImporter.Result<Book> result = ParallelCsvImporter.importFile(filePath, BOOK_COLUMNS.length, tokens -> {
+            if (tokens[0].isBlank() || tokens[1].isBlank()) {
+                throw new IllegalArgumentException("id and isbn are required");
+            }
+            return new Book.Builder<>()
+                    .id(tokens[0])
+                    .isbn(tokens[1])
+                    .title(tokens[2])
+                    .author(tokens[3])
+                    .category(tokens[4])
+                    .available(parseAvailable(tokens[5]))
+                    .build();
+        });
+
+        List<String> errors = new ArrayList<>(result.errors());
+        int imported = insertAll(result.rows(), errors);
+        PersistenceService.getInstance().saveNow(BOOK_TABLE, this::saveAll);
+
+        System.out.printf(" Imported %,d books in %d ms (%,.0f rows/sec), %,d rejected.%n",
+                imported, result.elapsedNanos() / 1_000_000, result.rowsPerSecond(),
+                result.rejectedCount() + result.rows().size() - imported);
+        return errors;
+    }
+
+    // Stores a batch under one hold of the write lock and indexes it in one pass. Unlike addBook, a row never
+    // replaces a stored book: id and ISBN collisions, with the catalog or within the batch, go to errors.
+    private int insertAll(List<Book> rows, List<String> errors) {
+        List<Book> stored = new ArrayList<>(rows.size());
+        writeLock.lock();
+        try {
+            Set<String> ids = new HashSet<>();
+            Set<String> isbns = new HashSet<>();
+            for (Book book : rows) {
+                if (books.containsKey(book.getId()) || !ids.add(book.getId())) {
+                    errors.add("book " + book.getId() + ": id already belongs to another book");
+                } else if (books.findByIsbn(book.getIsbn()) != null || !isbns.add(isbnKey(book.getIsbn()))) {
+                    errors.add("book " + book.getId() + ": ISBN " + book.getIsbn() + " already belongs to another book");
+                } else {
+                    books.put(book.getId(), book);
+                    Book view = books.get(book.getId());
+                    stored.add(view);
+                    facets.add(view);
+                    addCompletions(view, 1);
+                    hashId(view.getId());
+                }
+            }
+            if (stored.isEmpty()) return 0;
+            index.addAll(stored);
+            catalogVersion.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+        for (Book book : stored) {
+            removed.remove(book.getId());
+            dirty.add(book.getId());
+        }
+        return stored.size();
+    }
+
+    // Only the two literals saveToCsv writes; anything else is a malformed row, not a silent false
+    private static boolean parseAvailable(String value) {
+        if (value.equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException("available must be true or false, was '" + value + "'");
     }
 
-    private String unescape(String s) {
-        return s.replace("%2C", ",");
+    // Rewrites the whole table; used after bulk changes where a delta would be larger than the table
+    private void saveAll() throws IOException {
+        // As in persist(): the pending changes are only dropped once the table that covers them is written
+        List<String> changed = new ArrayList<>(dirty);
+        dirty.removeAll(changed);
+        List<String> gone = new ArrayList<>(removed);
+        removed.removeAll(gone);
+        List<Book> snapshot = new ArrayList<>(books.values());
+        try {
+            storage.write(BOOK_TABLE, BOOK_COLUMNS, snapshot.size(), sink -> {
+                for (Book b : snapshot) {
+                    sink.accept(rowOf(b));
+                }
+            });
+        } catch (IOException e) {
+            dirty.addAll(changed);
+            removed.addAll(gone);
+            throw e;
+        }
+        saveCompletions();
     }
 
+    private static String[] rowOf(Book b) {
+        return new String[]{
+                b.getId(),
+                b.getIsbn(),
+                b.getTitle(),
+                b.getAuthor(),
+                b.getCategory(),
+                String.valueOf(b.isAvailable())
+        };
+    }
 
     public void clearTestData() {
-        books.entrySet().removeIf(entry -> entry.getValue().getIsbn().startsWith("TEST-"));
+        writeLock.lock();
+        try {
+            books.entrySet().removeIf(entry -> {
+                String isbn = entry.getValue().getIsbn();
+                if (isbn == null || !isbn.startsWith("TEST-")) return false;
+                index.remove(entry.getKey());
+                facets.remove(entry.getValue());
+                addCompletions(entry.getValue(), -1);
+                hashId(entry.getKey());
+                dirty.remove(entry.getKey());
+                removed.add(entry.getKey());
+                return true;
+            });
+            catalogVersion.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
 }
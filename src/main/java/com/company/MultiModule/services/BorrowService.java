@@ -1,19 +1,24 @@
 package com.company.MultiModule.services;
 
+import com.company.MultiModule.Repository.Journal;
+import com.company.MultiModule.Repository.StorageEngine;
+import com.company.MultiModule.Repository.StorageEngines;
 import com.company.MultiModule.models.User;
 import com.company.MultiModule.models.Student;
 import com.company.MultiModule.models.Book;
 import com.company.MultiModule.exceptions.*;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class BorrowService {
 
@@ -23,13 +28,40 @@ public class BorrowService {
     public static final String YELLOW = "\u001B[33m";
     public static final String BLUE = "\u001B[34m";
 
+    private static final String BORROW_TABLE = "borrow";
+    private static final String[] BORROW_COLUMNS = {"user_id", "book_id"};
+    private static final String RESERVATION_TABLE = "reservations";
+    private static final String[] RESERVATION_COLUMNS = {"book_id", "user_id", "status", "held_until"};
+    private static final String BORROW_JOURNAL_FILE = StorageEngines.DATA_DIR + "/borrow.journal";
+    private static final long COMPACTION_INTERVAL_MINUTES = 5;
+    private static final long BORROW_TIMEOUT_SECONDS = Long.getLong("library.borrow.timeoutSeconds", 5);
+    // How long a returned copy stays held for a reservation restored from disk
+    private static final long HOLD_HOURS = Long.getLong("library.reservation.holdHours", 48);
+
+    // Journal record types
+    private static final String BORROWED = "B";
+    private static final String RETURNED = "R";
+
     private static final BorrowService instance = new BorrowService();
 
-    private final Map<String, Set<String>> borrowMap = new ConcurrentHashMap<>();
+    // user id -> borrowed book ids, kept as int handles
+    private final LoanTable loans = new LoanTable();
     private final BookService bookService = BookService.getInstance();
 
-    private final Map<String, ReentrantLock> bookLocks = new ConcurrentHashMap<>();
-    private final Map<String, Condition> bookConditions = new ConcurrentHashMap<>();
+    // Expires waiting borrows and holds; a pending borrow is a reservation plus one scheduled task, not a parked thread
+    private final ScheduledThreadPoolExecutor timeouts = newTimeoutScheduler();
+    // Borrowers waiting for a book that is out, served first come first served. A queue only exists while
+    // its book has reservations, so there are never more queues than waiting borrowers.
+    private final ReservationQueues reservations =
+            new ReservationQueues(bookService, timeouts, Duration.ofHours(HOLD_HOURS));
+
+    private final StorageEngine storage = StorageEngines.configured(BORROW_TABLE, "csv");
+    private final StorageEngine reservationStorage = StorageEngines.configured(RESERVATION_TABLE, "csv");
+    // Every borrow/return is appended here; the borrow table is only the last checkpoint
+    private final Journal journal = new Journal(BORROW_JOURNAL_FILE);
+    // Mutations share the read side, a checkpoint takes the write side so no record falls between snapshot and truncate
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService compactor;
 
     private BorrowService() {}
 
@@ -37,139 +69,332 @@ public class BorrowService {
         return instance;
     }
 
-    public void borrowBook(User user, String bookId) throws LibraryException {
-        ReentrantLock lock = bookLocks.computeIfAbsent(bookId, id -> new ReentrantLock());
-        Condition condition = bookConditions.computeIfAbsent(bookId, id -> lock.newCondition());
+    private static ScheduledThreadPoolExecutor newTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "borrow-timeouts");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
 
-        lock.lock();
+    /**
+     * Borrows the book, waiting up to {@code library.borrow.timeoutSeconds} (default 5) for a copy.
+     */
+    public void borrowBook(User user, String bookId) throws LibraryException {
+        // The caller gives up when the wait ends, so its reservation is not saved for after a restart
+        CompletableFuture<Void> borrow = borrowBookAsync(user, bookId, BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS, false);
         try {
-            if (!(user instanceof Student student)) {
-                throw new LibraryException("Only students can borrow books.");
-            }
+            borrow.get();
+        } catch (InterruptedException e) {
+            borrow.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new LibraryException("Thread interrupted while waiting for book.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LibraryException cause) throw cause;
+            throw new LibraryException("Borrow failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
 
-            Book book = bookService.findById(bookId);
-            if (book == null) {
-                throw new BookNotFound("Book with ISBN not found: " + bookId);
-            }
+    /**
+     * Like {@link #borrowBook(User, String)}, but never blocks: the future completes once the loan is on disk,
+     * or fails with the {@link LibraryException} borrowBook would throw. Cancelling it withdraws the reservation.
+     */
+    public CompletableFuture<Void> borrowBookAsync(User user, String bookId) {
+        return borrowBookAsync(user, bookId, BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
 
-            long timeout = 5; // seconds
-            while (!book.isAvailable()) {
-                System.out.println(YELLOW + user.getName() + RESET + " is waiting for the book " +
-                        BLUE + "\"" + book.getTitle() + "\"" + RESET + " to become available...");
-                try {
-                    boolean available = condition.await(timeout, TimeUnit.SECONDS);
-                    if (!available) {
-                        throw new BookUnavailableException(book.getTitle());
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new LibraryException("Thread interrupted while waiting for book.");
-                }
-            }
+    /**
+     * Like {@link #borrowBookAsync(User, String)}, with its own limit on how long to wait for a copy.
+     */
+    public CompletableFuture<Void> borrowBookAsync(User user, String bookId, long timeout, TimeUnit unit) {
+        return borrowBookAsync(user, bookId, timeout, unit, true);
+    }
 
-            Set<String> borrowed = borrowMap.computeIfAbsent(user.getId(), k -> new HashSet<>());
+    private CompletableFuture<Void> borrowBookAsync(User user, String bookId, long timeout, TimeUnit unit, boolean persistent) {
+        if (!(user instanceof Student student)) {
+            return CompletableFuture.failedFuture(new LibraryException("Only students can borrow books."));
+        }
 
-            if (borrowed.size() >= student.getBorrowLimit()) {
-                throw new BorrowLimitExceed(student.getName(), student.getBorrowLimit());
-            }
+        Book book = bookService.findById(bookId);
+        if (book == null) {
+            return CompletableFuture.failedFuture(new BookNotFound("Book with ISBN not found: " + bookId));
+        }
 
-            borrowed.add(bookId);
-            bookService.setAvailability(bookId, false);
-            System.out.printf("%s successfully borrowed \"%s\".%n", user.getName(), book.getTitle());
+        CompletableFuture<Void> borrow = new CompletableFuture<>();
+        // Fast path: one CAS on the book's availability. Only a book that is out goes through the reservation
+        // queue; a returned copy goes straight to the queue's head, so it is never on the shelf while anyone waits.
+        if (bookService.tryClaim(book)) {
+            completeBorrow(student, book, borrow);
+            return borrow;
+        }
 
-        } finally {
-            lock.unlock();
+        ReservationQueues.Reservation reservation = reservations.reserve(user.getId(), book, persistent);
+        if (!reservation.ready.isDone()) {
+            System.out.println(YELLOW + user.getName() + RESET + " is waiting for the book " +
+                    BLUE + "\"" + book.getTitle() + "\"" + RESET + " to become available...");
         }
-    }
 
+        ScheduledFuture<?> expiry = timeouts.schedule(() -> {
+            if (reservations.cancel(reservation)) borrow.completeExceptionally(new BookUnavailableException(book.getTitle()));
+        }, timeout, unit);
+        borrow.whenComplete((done, failure) -> {
+            expiry.cancel(false);
+            if (borrow.isCancelled()) reservations.cancel(reservation);
+        });
+
+        // Runs on the returning thread once the copy is handed over
+        reservation.ready.thenAccept(copy -> completeBorrow(student, book, borrow));
+        return borrow;
+    }
 
-    public void returnBook(User user, String bookId) throws LibraryException {
-        ReentrantLock lock = bookLocks.computeIfAbsent(bookId, id -> new ReentrantLock());
-        Condition condition = bookConditions.computeIfAbsent(bookId, id -> lock.newCondition());
+    // Records the loan for a copy this borrower now holds; the borrow completes once the journal has it
+    private void completeBorrow(Student student, Book book, CompletableFuture<Void> borrow) {
+        // Cancelled or expired just as the copy arrived
+        if (borrow.isDone()) {
+            releaseCopy(book);
+            return;
+        }
 
-        lock.lock();
+        String bookId = book.getId();
+        CompletableFuture<Void> durable;
+        checkpointLock.readLock().lock();
         try {
-            Book book = bookService.findById(bookId);
-            if (book == null) {
-                throw new BookNotFound("Book not found: " + bookId);
+            if (!loans.tryAdd(student.getId(), bookId, student.getBorrowLimit())) {
+                releaseCopy(book);
+                borrow.completeExceptionally(new BorrowLimitExceed(student.getName(), student.getBorrowLimit()));
+                return;
             }
+            durable = journal.appendAsync(BORROWED + "," + student.getId() + "," + bookId);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
 
-            Set<String> borrowed = borrowMap.get(user.getId());
-            if (borrowed == null || !borrowed.contains(bookId)) {
-                throw new BookNotBorrowedByUser(user.getName(), book.getIsbn());
+        // Concurrent borrowers share one fsync. The rest runs on the timeout thread rather than the journal's
+        // commit thread, which a checkpoint waits on while it holds checkpointLock.
+        durable.whenCompleteAsync((done, failure) -> {
+            if (failure != null) {
+                loans.remove(student.getId(), bookId);
+                releaseCopy(book);
+                borrow.completeExceptionally(new LibraryException("Failed to record borrow: " + failure.getMessage(), failure));
+            } else if (borrow.complete(null)) {
+                bookService.recordBorrow(bookId);
+                System.out.printf("%s successfully borrowed \"%s\".%n", student.getName(), book.getTitle());
+            } else {
+                // Cancelled after the loan was recorded: give the copy back
+                undoBorrow(student, book);
             }
+        }, timeouts);
+    }
 
-            borrowed.remove(bookId);
-            if (borrowed.isEmpty()) {
-                borrowMap.remove(user.getId());
-            }
+    private void undoBorrow(User user, Book book) {
+        checkpointLock.readLock().lock();
+        try {
+            if (!loans.remove(user.getId(), book.getId())) return;
+            journal.appendAsync(RETURNED + "," + user.getId() + "," + book.getId());
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        releaseCopy(book);
+    }
 
-            bookService.setAvailability(bookId, true);
-            System.out.printf("%s returned \"%s\" and notified others.%n", user.getName(), book.getTitle());
+    // Passes the copy to the next reservation, or back to the shelf when nobody waits
+    private void releaseCopy(Book book) {
+        reservations.handOff(book);
+    }
 
-            condition.signalAll();
+    public void returnBook(User user, String bookId) throws LibraryException {
+        Book book = bookService.findById(bookId);
+        if (book == null) {
+            throw new BookNotFound("Book not found: " + bookId);
+        }
 
+        CompletableFuture<Void> durable;
+        checkpointLock.readLock().lock();
+        try {
+            if (!loans.remove(user.getId(), bookId)) {
+                throw new BookNotBorrowedByUser(user.getName(), book.getIsbn());
+            }
+            durable = journal.appendAsync(RETURNED + "," + user.getId() + "," + bookId);
         } finally {
-            lock.unlock();
+            checkpointLock.readLock().unlock();
         }
+        releaseCopy(book);
+
+        // The copy may already be with the next borrower, so a failed commit is reported, not undone;
+        // the next checkpoint still captures the return.
+        try {
+            Journal.awaitDurable(durable);
+        } catch (IOException e) {
+            throw new LibraryException("Failed to record return: " + e.getMessage(), e);
+        }
+        System.out.printf("%s returned \"%s\" and notified others.%n", user.getName(), book.getTitle());
     }
 
+    /**
+     * Copy of all loans, user id to borrowed book ids.
+     */
     public Map<String, Set<String>> getBorrowMap() {
-        return borrowMap;
+        Map<String, Set<String>> copy = new HashMap<>();
+        loans.forEach((userId, bookId) -> copy.computeIfAbsent(userId, k -> new HashSet<>()).add(bookId));
+        return copy;
     }
 
     public Set<String> getBorrowedBooks(String userId) {
-        return borrowMap.getOrDefault(userId, Set.of());
+        return loans.booksOf(userId);
     }
 
+    // Books that currently have waiting reservations; bounded by the number of waiting borrowers, not the catalog
+    int waitQueueCount() {
+        return reservations.queueCount();
+    }
 
+    // Borrowers queued for the book
+    int waitingFor(String bookId) {
+        return reservations.waitingFor(bookId);
+    }
 
-    //load and save
-    public void saveToCsv() {
-        List<String> lines = new ArrayList<>();
-        lines.add("user_id,book_id"); // header
+    // Returned copies held for reservations restored from disk
+    int holdCount() {
+        return reservations.holdCount();
+    }
 
-        for (Map.Entry<String, Set<String>> entry : borrowMap.entrySet()) {
-            String userId = entry.getKey();
-            for (String bookId : entry.getValue()) {
-                lines.add(userId + "," + bookId);
-            }
-        }
 
+
+    //load and save
+
+    /**
+     * Writes a checkpoint of all loans and reservations through the storage engine and empties the journal,
+     * on the persistence writer thread.
+     */
+    public void saveToCsv() {
         try {
-            Files.write(Paths.get("data/borrow.csv"), lines);
+            PersistenceService.getInstance().saveNow(BORROW_TABLE, this::checkpoint);
             System.out.println(GREEN + "Borrow records saved successfully." + RESET);
         } catch (IOException e) {
             System.out.println(RED + "Error saving borrow records: " + e.getMessage() + RESET);
         }
     }
 
-    public void loadFromCsv() {
-        Path path = Paths.get("data/borrow.csv");
-        if (!Files.exists(path)) return;
+    /**
+     * Like {@link #saveToCsv()}, but runs on the persistence writer thread.
+     */
+    public CompletableFuture<Void> saveAsync() {
+        return PersistenceService.getInstance().submit(BORROW_TABLE, this::checkpoint);
+    }
 
+    private void checkpoint() throws IOException {
+        checkpointLock.writeLock().lock();
         try {
-            List<String> lines = Files.readAllLines(path);
-            for (int i = 1; i < lines.size(); i++) { // Skip header
-                String[] parts = lines.get(i).split(",", 2);
-                if (parts.length < 2) continue;
+            // Appends queued before the lock are in the loans already; they must reach the file before the truncate
+            journal.flush();
+            storage.write(BORROW_TABLE, BORROW_COLUMNS, loans.size(), sink -> loans.forEach(sink::accept));
+            journal.truncate();
+            saveReservations();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
 
-                String userId = parts[0];
-                String bookId = parts[1];
+    private void saveReservations() throws IOException {
+        reservations.takeChanged();
+        List<String[]> rows = reservations.snapshot();
+        reservationStorage.write(RESERVATION_TABLE, RESERVATION_COLUMNS, rows.size(), sink -> {
+            for (String[] row : rows) sink.accept(row);
+        });
+    }
 
-                borrowMap.computeIfAbsent(userId, k -> new HashSet<>()).add(bookId);
+    /**
+     * Loads the last checkpoint, replays the journal on top of it and restores the reservation queues.
+     */
+    public void loadFromCsv() {
+        try {
+            storage.read(BORROW_TABLE, parts -> {
+                if (parts.length < 2) return;
 
-                // Also mark the book as unavailable
-                bookService.setAvailability(bookId, false);
-            }
+                applyBorrow(parts[0], parts[1]);
+            });
 
-            System.out.println(GREEN + "Borrow records loaded from CSV." + RESET);
-        } catch (IOException e) {
+            journal.replay(this::applyJournalRecord);
+
+            loadReservations();
+
+            System.out.println(GREEN + "Borrow records loaded (" + storage.name() + ")." + RESET);
+        } catch (IOException | RuntimeException e) {
             System.out.println(RED + "Error loading borrow records: " + e.getMessage() + RESET);
         }
     }
 
+    /**
+     * Periodically folds the journal into a fresh checkpoint.
+     */
+    public synchronized void startJournalCompaction() {
+        if (compactor != null) return;
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "borrow-journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactJournal,
+                COMPACTION_INTERVAL_MINUTES, COMPACTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stopJournalCompaction() {
+        if (compactor != null) {
+            compactor.shutdown();
+            compactor = null;
+        }
+    }
+
+    private void compactJournal() {
+        try {
+            if (journal.size() > 0 || reservations.takeChanged()) {
+                saveAsync().whenComplete((done, failure) -> {
+                    if (failure != null) {
+                        System.out.println(RED + "Error compacting borrow journal: " + failure.getMessage() + RESET);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            System.out.println(RED + "Error compacting borrow journal: " + e.getMessage() + RESET);
+        }
+    }
 
+    private void loadReservations() throws IOException {
+        reservationStorage.read(RESERVATION_TABLE, parts -> {
+            if (parts.length < 3) return;
 
+            boolean held = "held".equals(parts[2]);
+            // A held copy stays off the shelf until the hold is picked up or expires
+            if (held) bookService.setAvailability(parts[0], false);
+            reservations.restore(parts[0], parts[1], held, parts.length > 3 ? Long.parseLong(parts[3]) : 0);
+        });
 
+        // Copies returned while nobody was around to receive them go to the head of their queue
+        for (String bookId : reservations.queuedBooks()) {
+            Book book = bookService.findById(bookId);
+            if (book != null && bookService.tryClaim(book)) releaseCopy(book);
+        }
+    }
+
+    private void applyJournalRecord(String record) {
+        String[] parts = record.split(",", 3);
+        if (parts.length < 3) return;
+
+        if (BORROWED.equals(parts[0])) {
+            applyBorrow(parts[1], parts[2]);
+        } else if (RETURNED.equals(parts[0])) {
+            loans.remove(parts[1], parts[2]);
+            bookService.setAvailability(parts[2], true);
+        }
+    }
+
+    private void applyBorrow(String userId, String bookId) {
+        loans.add(userId, bookId);
+
+        // Also mark the book as unavailable
+        bookService.setAvailability(bookId, false);
+    }
 }
@@ -0,0 +1,69 @@
+package com.company.MultiModule.services;
+
+import com.company.MultiModule.models.Book;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only view of the catalog as it was at one point in time.
+ * <p>
+ * The view wraps an array that {@link BookService} builds once per catalog change and shares
+ * between all readers, so listing, paging and streaming allocate nothing per book.
+ * Books added or removed later do not show up; a book's availability is always read live.
+ */
+public final class CatalogView extends AbstractList<Book> implements RandomAccess {
+
+    private final Book[] books;
+    private final long version;
+
+    CatalogView(Book[] books, long version) {
+        this.books = books;
+        this.version = version;
+    }
+
+    /**
+     * Catalog version the view was taken at; it changes whenever a book is added or removed.
+     */
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public Book get(int index) {
+        return books[index];
+    }
+
+    @Override
+    public int size() {
+        return books.length;
+    }
+
+    /**
+     * Books {@code offset} to {@code offset + limit} (clamped to the catalog), without copying.
+     */
+    public List<Book> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+        int from = Math.min(offset, books.length);
+        int to = (int) Math.min((long) from + limit, books.length);
+        return subList(from, to);
+    }
+
+    /**
+     * Sized, splittable stream over the snapshot; safe to run in parallel.
+     */
+    @Override
+    public Stream<Book> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    @Override
+    public Spliterator<Book> spliterator() {
+        return Arrays.spliterator(books);
+    }
+}
@@ -0,0 +1,196 @@
+package com.company.MultiModule.services;
+
+import java.util.*;
+
+/**
+ * Active loans as primitives: user and book ids are interned to int handles (UUIDs kept as two longs
+ * in an open-addressing table), and each user's loans are a small int array of book handles.
+ * String ids only appear at the method boundaries. Handles are never freed, which is fine for ids of
+ * the users and books of one library. All methods are synchronized.
+ */
+final class LoanTable {
+
+    private static final int[] NONE = new int[0];
+
+    private final Ids users = new Ids();
+    private final Ids books = new Ids();
+    private int[][] loans = new int[16][];   // user handle -> book handles
+    private int size;
+
+    interface LoanConsumer<E extends Exception> {
+        void accept(String userId, String bookId) throws E;
+    }
+
+    // Interned ids: canonical UUIDs as two longs, any other id as its String
+    private static final class Ids {
+        long[] high = new long[16];
+        long[] low = new long[16];
+        String[] texts;                           // only allocated once a non-UUID id shows up
+        final Map<String, Integer> textHandles = new HashMap<>();
+        int[] slots = new int[32];                // UUID handle + 1, 0 for empty
+        int count;
+
+        // Handle of the id, or -1 when it was never seen and create is false
+        int handle(String id, boolean create) {
+            UUID uuid = parse(id);
+            if (uuid == null) {
+                Integer handle = textHandles.get(id);
+                if (handle != null || !create) return handle == null ? -1 : handle;
+                int created = next();
+                if (texts == null) texts = new String[high.length];
+                texts[created] = id;
+                textHandles.put(id, created);
+                return created;
+            }
+
+            long hi = uuid.getMostSignificantBits();
+            long lo = uuid.getLeastSignificantBits();
+            int mask = slots.length - 1;
+            int i = slot(hi, lo) & mask;
+            for (; slots[i] != 0; i = (i + 1) & mask) {
+                int handle = slots[i] - 1;
+                if (high[handle] == hi && low[handle] == lo) return handle;
+            }
+            if (!create) return -1;
+
+            int created = next();
+            high[created] = hi;
+            low[created] = lo;
+            if (2 * count > slots.length) {
+                rehash();   // places the new handle too
+            } else {
+                slots[i] = created + 1;
+            }
+            return created;
+        }
+
+        String id(int handle) {
+            if (texts != null && texts[handle] != null) return texts[handle];
+            return new UUID(high[handle], low[handle]).toString();
+        }
+
+        private int next() {
+            if (count == high.length) {
+                high = Arrays.copyOf(high, count * 2);
+                low = Arrays.copyOf(low, count * 2);
+                if (texts != null) texts = Arrays.copyOf(texts, count * 2);
+            }
+            return count++;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int handle = 0; handle < count; handle++) {
+                if (texts != null && texts[handle] != null) continue;
+                int i = slot(high[handle], low[handle]) & mask;
+                while (slots[i] != 0) i = (i + 1) & mask;
+                slots[i] = handle + 1;
+            }
+        }
+
+        private static int slot(long hi, long lo) {
+            int hash = Long.hashCode(hi * 31 + lo);
+            return hash ^ (hash >>> 16);
+        }
+
+        private static UUID parse(String id) {
+            if (id.length() != 36) return null;
+            try {
+                UUID uuid = UUID.fromString(id);
+                return uuid.toString().equals(id) ? uuid : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Records the loan unless the user already has {@code limit} books; true when the loan is recorded
+     * (or already was).
+     */
+    synchronized boolean tryAdd(String userId, String bookId, int limit) {
+        int user = users.handle(userId, true);
+        int book = books.handle(bookId, true);
+        int[] held = loansOf(user);
+        if (indexOf(held, book) >= 0) return true;
+        if (held.length >= limit) return false;
+
+        int[] grown = Arrays.copyOf(held, held.length + 1);
+        grown[held.length] = book;
+        loans[user] = grown;
+        size++;
+        return true;
+    }
+
+    synchronized void add(String userId, String bookId) {
+        tryAdd(userId, bookId, Integer.MAX_VALUE);
+    }
+
+    synchronized boolean remove(String userId, String bookId) {
+        int user = users.handle(userId, false);
+        int book = books.handle(bookId, false);
+        if (user < 0 || book < 0) return false;
+
+        int[] held = loansOf(user);
+        int at = indexOf(held, book);
+        if (at < 0) return false;
+
+        int[] shrunk = held.length == 1 ? null : new int[held.length - 1];
+        if (shrunk != null) {
+            System.arraycopy(held, 0, shrunk, 0, at);
+            System.arraycopy(held, at + 1, shrunk, at, held.length - at - 1);
+        }
+        loans[user] = shrunk;
+        size--;
+        return true;
+    }
+
+    synchronized boolean contains(String userId, String bookId) {
+        int user = users.handle(userId, false);
+        int book = books.handle(bookId, false);
+        return user >= 0 && book >= 0 && indexOf(loansOf(user), book) >= 0;
+    }
+
+    /**
+     * Ids of the books the user has, as an unmodifiable copy.
+     */
+    synchronized Set<String> booksOf(String userId) {
+        int user = users.handle(userId, false);
+        int[] held = user < 0 ? NONE : loansOf(user);
+        if (held.length == 0) return Set.of();
+
+        Set<String> ids = new HashSet<>(held.length * 2);
+        for (int book : held) ids.add(books.id(book));
+        return Collections.unmodifiableSet(ids);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Calls the consumer with (user id, book id) for every loan.
+     */
+    synchronized <E extends Exception> void forEach(LoanConsumer<E> consumer) throws E {
+        for (int user = 0; user < users.count; user++) {
+            int[] held = loansOf(user);
+            if (held.length == 0) continue;
+            String userId = users.id(user);
+            for (int book : held) consumer.accept(userId, books.id(book));
+        }
+    }
+
+    private int[] loansOf(int user) {
+        if (user >= loans.length) loans = Arrays.copyOf(loans, Math.max(loans.length * 2, user + 1));
+        int[] held = loans[user];
+        return held == null ? NONE : held;
+    }
+
+    private static int indexOf(int[] held, int book) {
+        for (int i = 0; i < held.length; i++) {
+            if (held[i] == book) return i;
+        }
+        return -1;
+    }
+}
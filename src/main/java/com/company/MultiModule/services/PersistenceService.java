@@ -0,0 +1,211 @@
+package com.company.MultiModule.services;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs saves on one background writer thread so callers never wait for the disk.
+ * <p>
+ * Saves are keyed by what they write (e.g. {@code "books"}). A save whose key is already waiting in the
+ * queue is folded into that entry: a save always writes the current in-memory state, so the queued one
+ * covers both and the callers share its future. At most {@code library.persistence.maxPending} saves
+ * wait at a time; past that, {@link #submit} blocks until the writer catches up.
+ * Synchronous saves go through the same thread via {@link #saveNow}, so no two writes ever overlap.
+ */
+public class PersistenceService {
+
+    private static final int MAX_PENDING = Integer.getInteger("library.persistence.maxPending", 64);
+
+    private static final PersistenceService instance = new PersistenceService();
+
+    @FunctionalInterface
+    public interface SaveTask {
+        void save() throws IOException;
+    }
+
+    private static final class PendingSave {
+        final String key;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        SaveTask task;
+
+        PendingSave(String key, SaveTask task) {
+            this.key = key;
+            this.task = task;
+        }
+    }
+
+    // Tells the writer thread to stop once everything before it is written
+    private static final PendingSave SHUTDOWN = new PendingSave("", () -> {});
+
+    private final BlockingQueue<PendingSave> queue = new ArrayBlockingQueue<>(MAX_PENDING);
+    // Saves not yet picked up by the writer, by key
+    private final Map<String, PendingSave> waiting = new HashMap<>();
+    private Thread writer;
+    // Set from the start of shutdown until its writer has been joined; submits are refused meanwhile
+    private boolean stopping;
+    // Submits that have been admitted but not yet put on the queue
+    private int entering;
+
+    private PersistenceService() {}
+
+    public static PersistenceService getInstance() {
+        return instance;
+    }
+
+    /**
+     * Queues a save; the future completes once it has run, or fails with its exception.
+     * Fails with {@link IllegalStateException} while {@link #shutdown} is in progress.
+     */
+    public CompletableFuture<Void> submit(String key, SaveTask task) {
+        PendingSave save;
+        synchronized (this) {
+            if (stopping) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Persistence is shutting down"));
+            }
+            PendingSave queued = waiting.get(key);
+            if (queued != null) {
+                queued.task = task;
+                return queued.done;
+            }
+            save = new PendingSave(key, task);
+            waiting.put(key, save);
+            ensureWriter();
+            entering++;
+        }
+
+        try {
+            queue.put(save); // back-pressure: blocks while the queue is full
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (this) {
+                waiting.remove(key, save);
+            }
+            save.done.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                if (--entering == 0) notifyAll();
+            }
+        }
+        return save.done;
+    }
+
+    /**
+     * Queues the save and waits until it has run, unwrapping its failure. Runs it directly when called
+     * from a save that is already on the writer thread.
+     */
+    public void saveNow(String key, SaveTask task) throws IOException {
+        boolean onWriter;
+        synchronized (this) {
+            onWriter = Thread.currentThread() == writer;
+        }
+        if (onWriter) {
+            task.save();
+        } else {
+            await(submit(key, task));
+        }
+    }
+
+    /**
+     * Blocks until a submitted save has run, unwrapping the write failure if there was one.
+     */
+    public static void await(CompletableFuture<Void> save) throws IOException {
+        try {
+            save.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for save", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("Save failed", cause);
+        }
+    }
+
+    /**
+     * Writes everything already queued, then stops the writer thread. Submits made meanwhile are
+     * refused; once the writer has been joined the next submit starts a new one.
+     */
+    public void shutdown() {
+        Thread stopped;
+        synchronized (this) {
+            if (writer == null || stopping) return;
+            stopping = true;
+            stopped = writer;
+        }
+
+        // Finishes even if interrupted: a half-done shutdown would leave submits refused or a marker queued
+        boolean interrupted = false;
+        synchronized (this) {
+            // Saves already admitted must be on the queue ahead of the marker
+            while (entering > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        while (true) {
+            try {
+                queue.put(SHUTDOWN);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (stopped.isAlive()) {
+            try {
+                stopped.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        synchronized (this) {
+            writer = null;
+            stopping = false;
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private synchronized void ensureWriter() {
+        if (writer != null) return;
+
+        writer = new Thread(this::writeLoop, "persistence-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            PendingSave save;
+            try {
+                save = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (save == SHUTDOWN) return;
+
+            SaveTask task;
+            synchronized (this) {
+                // From here on a new save for this key queues behind this one instead of joining it
+                waiting.remove(save.key, save);
+                task = save.task;
+            }
+
+            try {
+                task.save();
+                save.done.complete(null);
+            } catch (IOException | RuntimeException e) {
+                // Reported by whoever holds the future
+                save.done.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -3,9 +3,11 @@ package com.company.MultiModule.services;
 import com.company.MultiModule.exceptions.UserNotFound;
 import com.company.MultiModule.models.Book;
 import com.company.MultiModule.models.User;
+import com.company.MultiModule.search.BookFacets;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.nio.file.*;
 import java.util.*;
 
@@ -39,7 +41,7 @@ public class ReportService {
         return instance;
     }
 
-    public void generateBookReport(List<Book> books) {
+    public void generateBookReport(Collection<? extends Book> books) {
         System.out.println();
         System.out.println(HEADER + "========== BOOK REPORT ==========" + RESET + "\n");
 
@@ -47,7 +49,7 @@ public class ReportService {
         lines.add("id,isbn,title,author,category,available");
 
         for (Book book : books) {
-            printObjectDetails(book);
+            printBookDetails(book);
             lines.add(String.join(",",
                     book.getId(),
                     escape(book.getIsbn()),
@@ -62,7 +64,7 @@ public class ReportService {
         writeReport("book_report.csv", lines);
     }
 
-    public void generateUserReport(List<User> users) {
+    public void generateUserReport(Collection<? extends User> users) {
         System.out.println();
         System.out.println(HEADER + "========== USER REPORT ==========" + RESET + "\n");
 
@@ -84,12 +86,50 @@ public class ReportService {
         writeReport("user_report.csv", lines);
     }
 
+    /**
+     * Books and available books per category, read from the live facet counters instead of scanning the catalog.
+     */
+    public void generateCategoryReport(BookFacets facets) {
+        System.out.println();
+        System.out.println(HEADER + "========== CATEGORY REPORT ==========" + RESET + "\n");
+
+        List<String> lines = new ArrayList<>();
+        lines.add("category,books,available");
+
+        for (Map.Entry<String, Long> entry : facets.categoryCounts().entrySet()) {
+            String category = entry.getKey();
+            long available = facets.availableInCategory(category);
+            System.out.printf("  %s%-25s%s : %s%d books, %d available%s%n",
+                    FIELD, category, RESET, VALUE, entry.getValue(), available, RESET);
+            lines.add(String.join(",", escape(category), String.valueOf(entry.getValue()), String.valueOf(available)));
+        }
+
+        writeReport("category_report.csv", lines);
+    }
+
+    // Through the getters: catalog books are flyweight views whose own fields are not the book's
+    private void printBookDetails(Book book) {
+        System.out.println(TITLE + "Class: " + Book.class.getSimpleName() + RESET);
+        printField("id", book.getId());
+        printField("title", book.getTitle());
+        printField("author", book.getAuthor());
+        printField("category", book.getCategory());
+        printField("isbn", book.getIsbn());
+        printField("available", book.isAvailable());
+    }
+
+    private void printField(String name, Object value) {
+        System.out.printf("  %s%-20s%s : %s%s%s%n", FIELD, name, RESET, VALUE, value, RESET);
+    }
+
     private void printObjectDetails(Object obj) {
         Class<?> clazz = obj.getClass();
         System.out.println(TITLE + "Class: " + clazz.getSimpleName() + RESET);
 
         while (clazz != null) {
             for (Field field : clazz.getDeclaredFields()) {
+                // Constants and handles such as Book's VarHandle are not part of the object
+                if (Modifier.isStatic(field.getModifiers())) continue;
                 field.setAccessible(true);
                 try {
                     Object value = field.get(obj);
@@ -97,9 +137,7 @@ public class ReportService {
                     {
                         value=new String((char[])value);
                     }
-                    System.out.printf("  %s%-20s%s : %s%s%s%n",
-                            FIELD, field.getName(), RESET,
-                            VALUE, value, RESET);
+                    printField(field.getName(), value);
                 } catch (IllegalAccessException e) {
                     System.out.printf("  %s%-20s%s : %s[access denied]%s%n",
                             FIELD, field.getName(), RESET, VALUE, RESET);
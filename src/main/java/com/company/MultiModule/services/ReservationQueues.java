@@ -0,0 +1,243 @@
+package com.company.MultiModule.services;
+
+import com.company.MultiModule.models.Book;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-book FIFO queues of borrowers waiting for a copy. A returned copy is handed straight to the oldest
+ * reservation instead of going back on the shelf, so exactly one waiter is woken and nobody can take the
+ * copy in between. Queues exist only while a book has reservations.
+ *
+ * Reservations restored from disk have no waiting borrower yet; a copy handed to one of them is held for
+ * its user until that user borrows the book or the hold time runs out, when the copy is passed on.
+ * Only persistent reservations (those of borrowers who did not block waiting) are saved and restored.
+ */
+final class ReservationQueues {
+
+    static final class Reservation {
+        final String userId;
+        final String bookId;
+        // Completes with the book once the copy has been handed to this reservation
+        final CompletableFuture<Book> ready = new CompletableFuture<>();
+        // Saved with the queues; a blocking borrower's reservation ends with its wait
+        final boolean persistent;
+        // Restored from disk and not yet picked up by its user
+        boolean restored;
+        // Epoch millis when a held copy is passed on
+        long heldUntil;
+
+        Reservation(String userId, String bookId, boolean persistent) {
+            this.userId = userId;
+            this.bookId = bookId;
+            this.persistent = persistent;
+        }
+    }
+
+    // book id -> waiting reservations, oldest first. Queues are only touched inside compute, so each
+    // book's bin lock orders claims, reservations and hand-offs for that book.
+    private final Map<String, ArrayDeque<Reservation>> queues = new ConcurrentHashMap<>();
+    // book id -> restored reservation its returned copy is held for
+    private final Map<String, Reservation> holds = new ConcurrentHashMap<>();
+    private final BookService bookService;
+    // Runs hold expiries
+    private final ScheduledExecutorService timeouts;
+    private final long holdMillis;
+    private volatile boolean changed;
+
+    ReservationQueues(BookService bookService, ScheduledExecutorService timeouts, Duration holdTime) {
+        this.bookService = bookService;
+        this.timeouts = timeouts;
+        this.holdMillis = holdTime.toMillis();
+    }
+
+    /**
+     * Joins the end of the book's queue with a persistent reservation; see {@link #reserve(String, Book, boolean)}.
+     */
+    Reservation reserve(String userId, Book book) {
+        return reserve(userId, book, true);
+    }
+
+    /**
+     * Joins the end of the book's queue. The reservation is ready at once when the copy is on the shelf,
+     * is held for this user, or this user already had a restored place in the queue (which is kept).
+     */
+    Reservation reserve(String userId, Book book, boolean persistent) {
+        Reservation[] mine = new Reservation[1];
+        queues.compute(book.getId(), (id, queue) -> {
+            Reservation held = holds.get(id);
+            if (held != null && held.userId.equals(userId)) {
+                holds.remove(id);
+                changed = true;
+                mine[0] = held;
+                return queue;
+            }
+            if (queue != null) {
+                for (Reservation r : queue) {
+                    if (r.restored && r.userId.equals(userId)) {
+                        r.restored = false;
+                        mine[0] = r;
+                        return queue;
+                    }
+                }
+            }
+
+            mine[0] = new Reservation(userId, id, persistent);
+            // Re-checked under the bin lock handOff takes, so a return cannot fall between this and the enqueue
+            if (bookService.tryClaim(book)) {
+                mine[0].ready.complete(book);
+                return queue;
+            }
+            if (queue == null) queue = new ArrayDeque<>();
+            queue.add(mine[0]);
+            if (persistent) changed = true;
+            return queue;
+        });
+        return mine[0];
+    }
+
+    /**
+     * Gives a claimed copy to the oldest live reservation, or puts it back on the shelf when none is left.
+     */
+    void handOff(Book book) {
+        while (true) {
+            Reservation[] next = new Reservation[1];
+            queues.compute(book.getId(), (id, queue) -> {
+                Reservation r = queue == null ? null : queue.poll();
+                if (r == null) {
+                    bookService.release(book);
+                    return null;
+                }
+                if (r.persistent) changed = true;
+                if (r.restored) {
+                    hold(r, System.currentTimeMillis() + holdMillis);
+                    r.ready.complete(book);
+                } else {
+                    next[0] = r;
+                }
+                return queue.isEmpty() ? null : queue;
+            });
+            // Completed outside the bin lock; a reservation cancelled meanwhile passes the copy on
+            if (next[0] == null || next[0].ready.complete(book)) return;
+        }
+    }
+
+    /**
+     * Withdraws the reservation; false when the copy was already handed to it.
+     */
+    boolean cancel(Reservation reservation) {
+        if (!reservation.ready.cancel(false)) return false;
+        queues.computeIfPresent(reservation.bookId, (id, queue) -> {
+            if (queue.remove(reservation) && reservation.persistent) changed = true;
+            return queue.isEmpty() ? null : queue;
+        });
+        return true;
+    }
+
+    /**
+     * Adds a reservation read back from disk, either still waiting or holding the copy until {@code heldUntil}
+     * (epoch millis; 0 for a full hold time from now).
+     */
+    void restore(String bookId, String userId, boolean held, long heldUntil) {
+        queues.compute(bookId, (id, queue) -> {
+            Reservation current = holds.get(id);
+            if (current != null && current.userId.equals(userId)) return queue;
+            if (queue != null) {
+                for (Reservation r : queue) {
+                    if (r.userId.equals(userId)) return queue;
+                }
+            }
+
+            Reservation r = new Reservation(userId, id, true);
+            r.restored = true;
+            if (held) {
+                r.ready.complete(null);
+                hold(r, heldUntil > 0 ? heldUntil : System.currentTimeMillis() + holdMillis);
+                return queue;
+            }
+            if (queue == null) queue = new ArrayDeque<>();
+            queue.add(r);
+            return queue;
+        });
+    }
+
+    // Keeps the claimed copy for the reservation until the deadline; called under the book's bin lock
+    private void hold(Reservation r, long heldUntil) {
+        r.heldUntil = heldUntil;
+        holds.put(r.bookId, r);
+        long delay = Math.max(0, heldUntil - System.currentTimeMillis());
+        timeouts.schedule(() -> expire(r), delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Passes the held copy on unless its user picked it up first
+    private void expire(Reservation held) {
+        boolean[] expired = {false};
+        queues.compute(held.bookId, (id, queue) -> {
+            if (holds.remove(id, held)) {
+                changed = true;
+                expired[0] = true;
+            }
+            return queue;
+        });
+        if (!expired[0]) return;
+        Book book = bookService.findById(held.bookId);
+        if (book != null) handOff(book);
+    }
+
+    /**
+     * Books that currently have a queue.
+     */
+    Set<String> queuedBooks() {
+        return new HashSet<>(queues.keySet());
+    }
+
+    int queueCount() {
+        return queues.size();
+    }
+
+    // Reservations waiting in the book's queue
+    int waitingFor(String bookId) {
+        int[] count = {0};
+        queues.computeIfPresent(bookId, (id, queue) -> {
+            count[0] = queue.size();
+            return queue;
+        });
+        return count[0];
+    }
+
+    int holdCount() {
+        return holds.size();
+    }
+
+    /**
+     * True once, after any change since the last call.
+     */
+    boolean takeChanged() {
+        boolean was = changed;
+        changed = false;
+        return was;
+    }
+
+    /**
+     * Rows of (book id, user id, status, held until) of the persistent reservations: holds first, then each
+     * queue in order.
+     */
+    List<String[]> snapshot() {
+        List<String[]> rows = new ArrayList<>();
+        holds.forEach((bookId, r) -> rows.add(new String[]{bookId, r.userId, "held", String.valueOf(r.heldUntil)}));
+        for (String bookId : queuedBooks()) {
+            queues.computeIfPresent(bookId, (id, queue) -> {
+                for (Reservation r : queue) {
+                    if (r.persistent) rows.add(new String[]{id, r.userId, "waiting", "0"});
+                }
+                return queue;
+            });
+        }
+        return rows;
+    }
+}
@@ -1,14 +1,16 @@
 package com.company.MultiModule.services;
 
-import com.company.MultiModule.Repository.CsvStorage;
+import com.company.MultiModule.Repository.StorageEngine;
+import com.company.MultiModule.Repository.StorageEngines;
 import com.company.MultiModule.exceptions.UserNotFound;
 import com.company.MultiModule.models.Librarian;
 import com.company.MultiModule.models.Student;
 import com.company.MultiModule.models.User;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class UserService {
 
@@ -16,9 +18,16 @@ public class UserService {
     final String RESET = "\u001B[0m";
     final int BOX_WIDTH = 60;
 
-    private static final String USER_CSV_FILE = "data/users.csv";
+    private static final String USER_TABLE = "users";
+    private static final String[] USER_COLUMNS = {"id", "name", "email", "password", "type", "extra"};
     private static final UserService instance = new UserService();
-    private final Map<String, User> users = new HashMap<>();
+    // Concurrent so the persistence writer can iterate while users are added
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    // Lower-cased name -> ids of the users with that name (names are not unique), lower-cased email -> id.
+    // Hits are checked against users, so users removed through getAllUsers() are never returned.
+    private final Map<String, Set<String>> idsByName = new ConcurrentHashMap<>();
+    private final Map<String, String> idByEmail = new ConcurrentHashMap<>();
+    private final StorageEngine storage = StorageEngines.configured(USER_TABLE, "csv");
 
     private UserService() {
         // Add dummy Librarian
@@ -28,7 +37,7 @@ public class UserService {
                 .password("admin123".toCharArray())
                 .employeeCode("LIB-001")
                 .build();
-        users.put(librarian.getId(), librarian);
+        addUser(librarian);
 
         // Add dummy Student
         Student student = new Student.StudentBuilder()
@@ -37,7 +46,7 @@ public class UserService {
                 .password("pass123".toCharArray())
                 .borrowLimit(3)
                 .build();
-        users.put(student.getId(), student);
+        addUser(student);
 
         // Debug output
         String title = "DUMMY USERS LOADED";
@@ -58,19 +67,65 @@ public class UserService {
      * Authenticate user by name and password
      */
     public User login(String name, char[] password) throws UserNotFound {
-        return users.values().stream()
-                .filter(u -> u.getName().equalsIgnoreCase(name) && Arrays.equals(u.getPassword(), password))
-                .findFirst()
-                .orElseThrow(() -> new UserNotFound(name));
+        String nameKey = name != null ? lookupKey(name) : null;
+        Set<String> ids = nameKey != null ? idsByName.get(nameKey) : null;
+        if (ids != null) {
+            for (String id : ids) {
+                User user = users.get(id);
+                if (user == null || !nameKey.equals(lookupKey(user.getName()))) {
+                    ids.remove(id); // removed or renamed since it was indexed
+                    continue;
+                }
+                if (user.passwordMatches(password)) return user;
+            }
+        }
+        throw new UserNotFound(name);
     }
 
 
 
     /**
-     * Add new user
+     * Add new user. Emails are unique: returns false, and changes nothing, when another user already has this email.
      */
-    public void addUser(User user) {
-        users.put(user.getId(), user);
+    public boolean addUser(User user) {
+        if (!storeWithEmail(user)) return false;
+        indexName(user);
+        return true;
+    }
+
+    // Stores the user and points its email at it, unless another stored user has that email
+    private boolean storeWithEmail(User user) {
+        if (user.getEmail() == null) {
+            users.put(user.getId(), user);
+            return true;
+        }
+        boolean[] taken = {false};
+        idByEmail.compute(lookupKey(user.getEmail()), (key, owner) -> {
+            if (owner != null && !owner.equals(user.getId()) && hasEmail(users.get(owner), key)) {
+                taken[0] = true;
+                return owner;
+            }
+            // Stored before the email points at it, so findByEmail never sees the id without its user
+            users.put(user.getId(), user);
+            return user.getId();
+        });
+        return !taken[0];
+    }
+
+    private void indexName(User user) {
+        if (user.getName() != null) {
+            idsByName.computeIfAbsent(lookupKey(user.getName()), k -> ConcurrentHashMap.newKeySet()).add(user.getId());
+        }
+    }
+
+    // False for a removed user, or one whose email has changed since it was indexed
+    private static boolean hasEmail(User user, String emailKey) {
+        return user != null && emailKey.equals(lookupKey(user.getEmail()));
+    }
+
+    // Names and emails match case-insensitively; toLowerCase returns the same String when it is already lower case
+    private static String lookupKey(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -93,21 +148,45 @@ public class UserService {
      * Find by email
      */
     public User findByEmail(String email) {
-        return users.values().stream()
-                .filter(user -> user.getEmail().equalsIgnoreCase(email))
-                .findFirst()
-                .orElse(null);
+        if (email == null) return null;
+
+        String emailKey = lookupKey(email);
+        String id = idByEmail.get(emailKey);
+        User user = id != null ? users.get(id) : null;
+        if (!hasEmail(user, emailKey)) {
+            if (id != null) idByEmail.remove(emailKey, id);
+            return null;
+        }
+        return user;
     }
 
     /**
-     * Save all users to CSV
+     * Save all users through the configured storage engine, on the persistence writer thread
      */
     public void saveToCsv() {
         try {
-            List<String> lines = new ArrayList<>();
-            lines.add("id,name,email,password,type,extra");
+            PersistenceService.getInstance().saveNow(USER_TABLE, this::persist);
+            System.out.println(" Users saved (" + storage.name() + ").");
+        } catch (IOException e) {
+            System.out.println(" Failed to save users: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Like {@link #saveToCsv()}, but runs on the persistence writer thread.
+     */
+    public CompletableFuture<Void> saveAsync() {
+        return PersistenceService.getInstance().submit(USER_TABLE, this::persist);
+    }
 
-            for (User user : users.values()) {
+    private void persist() throws IOException {
+        // One copy for both the declared count and the rows, so a concurrent addUser cannot make them disagree
+        List<User> rows = users.values().stream()
+                .filter(u -> u instanceof Student || u instanceof Librarian)
+                .toList();
+
+        storage.write(USER_TABLE, USER_COLUMNS, rows.size(), sink -> {
+            for (User user : rows) {
                 String type;
                 String extra;
 
@@ -121,81 +200,68 @@ public class UserService {
                     continue; // Unknown type
                 }
 
-                lines.add(String.join(",",
+                sink.accept(
                         user.getId(),
-                        escape(user.getName()),
-                        escape(user.getEmail()),
-                        escape(new String(user.getPassword())),
+                        user.getName(),
+                        user.getEmail(),
+                        new String(user.getPassword()),
                         type,
-                        escape(extra)
-                ));
+                        extra
+                );
             }
-
-            CsvStorage.save(USER_CSV_FILE, lines);
-            System.out.println(" Users saved to CSV.");
-        } catch (IOException e) {
-            System.out.println(" Failed to save users to CSV: " + e.getMessage());
-        }
+        });
     }
 
     /**
-     * Load users from CSV
+     * Load users through the configured storage engine
      */
     public void loadFromCsv() {
         try {
-            List<String> lines = CsvStorage.load(USER_CSV_FILE);
-            if (lines.size() <= 1) return;
-
-            users.clear();
-            for (int i = 1; i < lines.size(); i++) {
-                String[] tokens = lines.get(i).split(",", -1);
-                if (tokens.length < 6) continue;
+            boolean[] loaded = {false};
+            storage.read(USER_TABLE, tokens -> {
+                if (!loaded[0]) {
+                    users.clear();
+                    idsByName.clear();
+                    idByEmail.clear();
+                    loaded[0] = true;
+                }
+                if (tokens.length < 6) return;
 
                 String id = tokens[0];
-                String name = unescape(tokens[1]);
-                String email = unescape(tokens[2]);
-                char[] password = unescape(tokens[3]).toCharArray();
+                String name = tokens[1];
+                String email = tokens[2];
+                char[] password = tokens[3].toCharArray();
                 String type = tokens[4];
-                String extra = unescape(tokens[5]);
+                String extra = tokens[5];
 
                 User user;
                 if ("std".equalsIgnoreCase(type)) {
                     user = new Student.StudentBuilder()
-                            .name(name).email(email).password(password)
+                            .id(id).name(name).email(email).password(password)
                             .borrowLimit(Integer.parseInt(extra)).build();
                 } else if ("lib".equalsIgnoreCase(type)) {
                     user = new Librarian.LibrarianBuilder()
-                            .name(name).email(email).password(password)
+                            .id(id).name(name).email(email).password(password)
                             .employeeCode(extra).build();
                 } else {
-                    continue;
+                    return;
                 }
 
-                // Inject ID via reflection
-                Field idField = User.class.getDeclaredField("id");
-                idField.setAccessible(true);
-                idField.set(user, id);
-
-                users.put(user.getId(), user);
-            }
+                // A file written before emails were unique may repeat one: keep the account, the first keeps the email
+                if (!storeWithEmail(user)) users.put(user.getId(), user);
+                indexName(user);
+            });
+            if (!loaded[0]) return;
 
-            System.out.println(" Users loaded from CSV.");
+            System.out.println(" Users loaded (" + storage.name() + ").");
         } catch (Exception e) {
-            System.out.println(" Failed to load users from CSV: " + e.getMessage());
+            System.out.println(" Failed to load users: " + e.getMessage());
         }
     }
 
 
     // --- Utility methods ---
 
-    private String escape(String s) {
-        return s.replace(",", "%2C");
-    }
-
-    private String unescape(String s) {
-        return s.replace("%2C", ",");
-    }
-
     private String centerText(String text, int width) {
         int padding = (width - text.length()) / 2;
         return " ".repeat(Math.max(0, padding)) + text + " ".repeat(Math.max(0, width - padding - text.length()));
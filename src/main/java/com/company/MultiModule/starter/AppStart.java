@@ -5,10 +5,13 @@ import com.company.MultiModule.models.Book;
 import com.company.MultiModule.models.Student;
 import com.company.MultiModule.models.User;
 import com.company.MultiModule.models.Librarian;
+import com.company.MultiModule.search.SearchPage;
 import com.company.MultiModule.services.*;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class AppStart {
 
@@ -18,6 +21,8 @@ public class AppStart {
     private static final String CYAN = "\u001B[36m";
     private static final String RESET = "\u001B[0m";
     private static final String BOLD = "\u001B[1m";
+    // Books shown per page when listing or searching
+    private static final int SEARCH_PAGE_SIZE = 10;
 
     private final Scanner scanner = new Scanner(System.in);
     private boolean backupStarted = false;
@@ -45,6 +50,8 @@ public class AppStart {
 
             // Start backup once the login in the system.
             BackupService.getInstance().startPeriodicBackup();
+            // Fold the borrow journal into borrow.csv in the background
+            borrowService.startJournalCompaction();
             boolean logout = false;
 
             while (!logout) {
@@ -87,10 +94,14 @@ public class AppStart {
                     }
 
                     case "9" -> {
+                        if (isLibrarian()) handleImportBooks();
+                        else System.out.println(RED + " Only librarians can import books." + RESET);
+                    }
+
+                    case "10" -> {
                         System.out.println(CYAN + "\nLogging out...\n" + RESET);
-                        userService.saveToCsv();
-                        bookService.saveToCsv();
-                        borrowService.saveToCsv();
+                        // Written by the persistence writer; wait so nobody leaves before their changes are on disk
+                        awaitSaves(userService.saveAsync(), bookService.saveAsync(), borrowService.saveAsync());
                         logout = true;
                     }
 
@@ -104,6 +115,8 @@ public class AppStart {
             if (!again.equals("yes")) {
                 quitApp = true;
                 BackupService.getInstance().shutdown();
+                borrowService.stopJournalCompaction();
+                PersistenceService.getInstance().shutdown();
                 System.out.println(GREEN + "\nSystem shutdown. Goodbye!" + RESET);
             }
         }
@@ -161,30 +174,38 @@ public class AppStart {
             System.out.println("6. Add user");
             System.out.println("7. Manual backup");
             System.out.println("8. Generate admin report");
+            System.out.println("9. Import books from CSV");
         }
 
-        System.out.println("9. Exit");
+        System.out.println("10. Exit");
         System.out.print(CYAN + "Select an option: " + RESET);
     }
 
 
     //book service
     private void handleListBooks() {
-        List<Book> books = bookService.listAllBooks();
+        CatalogView catalog = bookService.catalog();
 
-        if (books.isEmpty()) {
+        if (catalog.isEmpty()) {
             System.out.println(RED + " No books available." + RESET);
             return;
         }
 
-        System.out.println(GREEN + "\n========= AVAILABLE BOOKS =========" + RESET);
-        int index = 1;
-        for (Book book : books) {
-            System.out.printf(GREEN + "\nBook #%d\n" + RESET, index++);
-            System.out.println("  Title    : " + book.getTitle());
-            System.out.println("  Author   : " + book.getAuthor());
-            System.out.println("  Category : " + book.getCategory());
-            System.out.println("  ISBN     : " + book.getIsbn());
+        System.out.println(GREEN + "\n========= AVAILABLE BOOKS (" + catalog.size() + ") =========" + RESET);
+        for (int offset = 0; offset < catalog.size(); offset += SEARCH_PAGE_SIZE) {
+            if (offset > 0) {
+                System.out.print(CYAN + "\nShow more books? (yes/no): " + RESET);
+                if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) return;
+            }
+
+            int index = offset + 1;
+            for (Book book : catalog.page(offset, SEARCH_PAGE_SIZE)) {
+                System.out.printf(GREEN + "\nBook #%d\n" + RESET, index++);
+                System.out.println("  Title    : " + book.getTitle());
+                System.out.println("  Author   : " + book.getAuthor());
+                System.out.println("  Category : " + book.getCategory());
+                System.out.println("  ISBN     : " + book.getIsbn());
+            }
         }
     }
 
@@ -214,7 +235,6 @@ public class AppStart {
         catch (LibraryException e) {
             System.out.println(RED + " Failed to borrow book: " + e.getMessage() + RESET);
         }
-        borrowService.saveToCsv();
     }
 
 
@@ -238,7 +258,6 @@ public class AppStart {
         catch (LibraryException e) {
             System.out.println(RED + " Failed to return book: " + e.getMessage() + RESET);
         }
-        borrowService.saveToCsv();
 
 
     }
@@ -251,21 +270,60 @@ public class AppStart {
             System.out.println(RED + " Search keyword cannot be empty!" + RESET);
             return;
         }
+        keyword = completeKeyword(keyword);
 
-        List<Book> results = bookService.search(keyword);
-        if (results.isEmpty()) {
-            System.out.println(RED + " No books found." + RESET);
-        } else {
-            System.out.println(GREEN + "\n========= SEARCH RESULTS =========" + RESET);
-            int index = 1;
-            for (Book book : results) {
+        int offset = 0;
+        boolean fuzzy = false;
+        while (true) {
+            SearchPage page = fuzzy
+                    ? bookService.fuzzySearch(keyword, offset, SEARCH_PAGE_SIZE)
+                    : bookService.search(keyword, offset, SEARCH_PAGE_SIZE);
+            if (page.totalMatches() == 0 && !fuzzy) {
+                // Nothing spelt like that; retry allowing for typos
+                fuzzy = true;
+                continue;
+            }
+            if (page.totalMatches() == 0) {
+                System.out.println(RED + " No books found." + RESET);
+                return;
+            }
+
+            if (offset == 0) System.out.println(GREEN + "\n========= SEARCH RESULTS (" + page.totalMatches() + ") =========" + RESET);
+            if (offset == 0 && fuzzy) System.out.println(CYAN + " No exact matches; showing close spellings." + RESET);
+            int index = offset + 1;
+            for (Book book : page.books()) {
                 System.out.printf(GREEN + "\nResult #%d\n" + RESET, index++);
                 System.out.println("  Title    : " + book.getTitle());
                 System.out.println("  Author   : " + book.getAuthor());
                 System.out.println("  Category : " + book.getCategory());
                 System.out.println("  ISBN     : " + book.getIsbn());
             }
+
+            if (!page.hasMore()) return;
+            System.out.print(CYAN + "\nShow more results? (yes/no): " + RESET);
+            if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) return;
+            offset += SEARCH_PAGE_SIZE;
+        }
+    }
+
+    // Offers the most popular titles and authors starting with a partial keyword; Enter keeps the keyword as typed
+    private String completeKeyword(String keyword) {
+        List<String> suggestions = bookService.autocomplete(keyword, 5);
+        if (suggestions.isEmpty() || suggestions.stream().anyMatch(keyword::equalsIgnoreCase)) return keyword;
+
+        System.out.println(CYAN + " Suggestions:" + RESET);
+        for (int i = 0; i < suggestions.size(); i++) {
+            System.out.println("  " + (i + 1) + ". " + suggestions.get(i));
+        }
+        System.out.print(CYAN + "Pick a number, or press Enter to search for \"" + keyword + "\": " + RESET);
+        String choice = scanner.nextLine().trim();
+        try {
+            int picked = Integer.parseInt(choice);
+            if (picked >= 1 && picked <= suggestions.size()) return suggestions.get(picked - 1);
+        } catch (NumberFormatException ignored) {
+            // Anything else searches for what was typed
         }
+        return keyword;
     }
 
     private void handleAddBook() {
@@ -298,6 +356,10 @@ public class AppStart {
             System.out.println(RED + " ISBN cannot be empty!" + RESET);
             return;
         }
+        if (bookService.existsByIsbn(isbn)) {
+            System.out.println(RED + " A book with ISBN " + isbn + " already exists!" + RESET);
+            return;
+        }
 
         Book book = new Book.Builder<>()
                 .title(title)
@@ -306,8 +368,11 @@ public class AppStart {
                 .isbn(isbn)
                 .build();
 
-        bookService.addBook(book);
-        bookService.saveToCsv();
+        if (!bookService.addBook(book)) {
+            System.out.println(RED + " A book with ISBN " + isbn + " already exists!" + RESET);
+            return;
+        }
+        reportSaveFailure(bookService.saveAsync(), "book");
 
         System.out.println(GREEN + " Book added successfully." + RESET);
         System.out.println(" Book ID : " + book.getId());
@@ -395,10 +460,29 @@ public class AppStart {
             }
         }
 
-        userService.addUser(newUser);
+        if (!userService.addUser(newUser)) {
+            System.out.println(RED + " A user with this email already exists." + RESET);
+            return;
+        }
         System.out.println(GREEN + " User added successfully!" + RESET);
         System.out.println(" User ID : " + newUser.getId());
-        userService.saveToCsv();
+        reportSaveFailure(userService.saveAsync(), "user");
+    }
+
+
+
+    private void handleImportBooks() {
+        System.out.print("Path to CSV file: ");
+        String path = scanner.nextLine().trim();
+        try {
+            List<String> rejected = bookService.importCsv(path);
+            rejected.stream().limit(20).forEach(error -> System.out.println(RED + " Rejected " + error + RESET));
+            if (rejected.size() > 20) {
+                System.out.println(RED + " ... and more rejected rows." + RESET);
+            }
+        } catch (IOException e) {
+            System.out.println(RED + " Import failed: " + e.getMessage() + RESET);
+        }
     }
 
 
@@ -406,14 +490,33 @@ public class AppStart {
     // Backup and Report
 
     private void handleManualBackup() {
-        // Ensure the latest in-memory data is persisted
-        userService.saveToCsv();
-        bookService.saveToCsv();
-        borrowService.saveToCsv();
-
-        // Then backup
-        BackupService.getInstance().backupNow();
-        System.out.println(GREEN + " Manual backup completed." + RESET);;
+        // Ensure the latest in-memory data is persisted, then back up; the writer runs both in order
+        PersistenceService persistence = PersistenceService.getInstance();
+        reportSaveFailure(userService.saveAsync(), "users");
+        reportSaveFailure(bookService.saveAsync(), "books");
+        reportSaveFailure(borrowService.saveAsync(), "borrow records");
+        reportSaveFailure(persistence.submit("backup", () -> BackupService.getInstance().backupNow()), "backup");
+        System.out.println(GREEN + " Manual backup queued." + RESET);
+    }
+
+    // The save runs in the background; tell the user if it fails
+    private void reportSaveFailure(CompletableFuture<Void> save, String what) {
+        save.whenComplete((done, failure) -> {
+            if (failure != null) {
+                System.out.println(RED + " Saving " + what + " failed: " + failure.getMessage() + RESET);
+            }
+        });
+    }
+
+    // Blocks until the saves have run and reports the ones that failed
+    private void awaitSaves(CompletableFuture<?>... saves) {
+        for (CompletableFuture<?> save : saves) {
+            try {
+                save.join();
+            } catch (CompletionException e) {
+                System.out.println(RED + " Saving failed: " + e.getCause().getMessage() + RESET);
+            }
+        }
     }
 
 
@@ -428,14 +531,16 @@ public class AppStart {
         Map<String, Runnable> reportOptions = new LinkedHashMap<>();
         ReportService reportService = ReportService.getInstance();
 
-        reportOptions.put("1", () -> reportService.generateBookReport(bookService.listAllBooks()));
-        reportOptions.put("2", () -> reportService.generateUserReport(new ArrayList<>(userService.getAllUsers().values())));
+        reportOptions.put("1", () -> reportService.generateBookReport(bookService.catalog()));
+        reportOptions.put("2", () -> reportService.generateUserReport(userService.getAllUsers().values()));
         reportOptions.put("3", reportService::generateBorrowReport);
+        reportOptions.put("4", () -> reportService.generateCategoryReport(bookService.facets()));
 
         System.out.println(CYAN + "\n===== Admin Report Options =====" + RESET);
         System.out.println("1. Generate Book Report");
         System.out.println("2. Generate User Report");
         System.out.println("3. Generate Borrow Report");
+        System.out.println("4. Generate Category Report");
         System.out.print("Select: ");
 
         String choice = scanner.nextLine().trim();
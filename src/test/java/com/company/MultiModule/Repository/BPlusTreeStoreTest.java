@@ -0,0 +1,97 @@
+package com.company.MultiModule.Repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BPlusTreeStoreTest {
+
+    private static final String STORE_FILE = "data/test-btree.db";
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(Paths.get(STORE_FILE));
+    }
+
+    @Test
+    void testManyKeysSurviveSplitsAndReopen() throws IOException {
+        Map<String, String> expected = new TreeMap<>();
+        Random random = new Random(42);
+        try (BPlusTreeStore store = new BPlusTreeStore(STORE_FILE, 32)) {
+            for (int i = 0; i < 20_000; i++) {
+                String key = "book-" + random.nextInt(1_000_000);
+                String value = "Title " + i;
+                store.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        try (BPlusTreeStore store = new BPlusTreeStore(STORE_FILE, 32)) {
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), store.get(entry.getKey()));
+            }
+            assertNull(store.get("book-missing"));
+
+            List<String> scanned = new ArrayList<>();
+            store.scan("book-", (key, value) -> scanned.add(key));
+            assertEquals(new ArrayList<>(expected.keySet()), scanned, "Scan should return every key in order.");
+        }
+    }
+
+    @Test
+    void testDeleteAndPrefixScan() throws IOException {
+        try (BPlusTreeStore store = new BPlusTreeStore(STORE_FILE, 64)) {
+            store.put("books\u00011", "a");
+            store.put("books\u00012", "b");
+            store.put("users\u00011", "c");
+
+            assertTrue(store.delete("books\u00011"));
+            assertFalse(store.delete("books\u00011"));
+
+            List<String> books = new ArrayList<>();
+            store.scan("books\u0001", (key, value) -> books.add(value));
+            assertEquals(List.of("b"), books);
+        }
+    }
+
+    @Test
+    void testContainsPrefixSkipsEmptiedLeaves() throws IOException {
+        try (BPlusTreeStore store = new BPlusTreeStore(STORE_FILE, 64)) {
+            for (int i = 0; i < 2_000; i++) store.put(String.format("a-%05d", i), "row " + i);
+            store.put("b-1", "x");
+            for (int i = 0; i < 2_000; i++) store.delete(String.format("a-%05d", i));
+
+            assertFalse(store.containsPrefix("a-"), "Every a- key was deleted.");
+            assertTrue(store.containsPrefix("b-"));
+            assertFalse(store.containsPrefix("c-"));
+        }
+    }
+
+    @Test
+    void testSingleUpdateWritesOnePage() throws IOException {
+        try (BPlusTreeStore store = new BPlusTreeStore(STORE_FILE, 1024)) {
+            for (int i = 0; i < 5_000; i++) {
+                store.put(String.format("book-%05d", i), "true");
+            }
+            store.flush();
+
+            store.put("book-02500", "false");
+            store.flush();
+
+            assertEquals(1, store.pagesWrittenByLastFlush());
+            assertEquals("false", store.get("book-02500"));
+        }
+    }
+
+    @Test
+    void testOversizedEntryIsRejected() throws IOException {
+        try (BPlusTreeStore store = new BPlusTreeStore(STORE_FILE, 16)) {
+            assertThrows(IOException.class, () -> store.put("key", "x".repeat(BPlusTreeStore.MAX_ENTRY_BYTES)));
+        }
+    }
+}
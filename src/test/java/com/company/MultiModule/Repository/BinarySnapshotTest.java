@@ -0,0 +1,45 @@
+package com.company.MultiModule.Repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+
+    private static final String SNAPSHOT_FILE = "data/test-snapshot.bin";
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(Paths.get(SNAPSHOT_FILE));
+    }
+
+    @Test
+    void testRoundTripWithSharedAndNullValues() throws IOException {
+        BinarySnapshot.save(SNAPSHOT_FILE, 3, 3, sink -> {
+            sink.accept("id-1", "Clean Code", "Programming");
+            sink.accept("id-2", "Effective Java", "Programming");
+            sink.accept("id-3", null, "Algorithms, Data");
+        });
+
+        BinarySnapshot snapshot = BinarySnapshot.open(SNAPSHOT_FILE);
+
+        assertEquals(3, snapshot.recordCount());
+        assertEquals(3, snapshot.fieldCount());
+        assertEquals("Effective Java", snapshot.get(1, 1));
+        assertNull(snapshot.get(2, 1));
+        assertEquals("Algorithms, Data", snapshot.get(2, 2));
+        assertSame(snapshot.getShared(0, 2), snapshot.getShared(1, 2),
+                "Equal pooled values should decode to one shared instance.");
+    }
+
+    @Test
+    void testRecordCountMismatchFails() {
+        assertThrows(IOException.class, () -> BinarySnapshot.save(SNAPSHOT_FILE, 1, 2, sink -> sink.accept("only-one")));
+        assertFalse(Files.exists(Paths.get(SNAPSHOT_FILE)), "A failed save must not replace the snapshot.");
+    }
+}
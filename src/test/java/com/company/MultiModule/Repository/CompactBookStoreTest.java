@@ -0,0 +1,193 @@
+package com.company.MultiModule.Repository;
+
+import com.company.MultiModule.models.Book;
+import com.company.MultiModule.search.BookIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactBookStoreTest {
+
+    private final CompactBookStore store = new CompactBookStore();
+
+    @Test
+    void testViewsReadAndWriteThroughTheColumns() {
+        Book book = book(UUID.randomUUID().toString(), "Clean Code", "Robert Martin", "Programming");
+        store.put(book.getId(), book);
+
+        Book view = store.get(book.getId());
+        assertEquals(book, view);
+        assertEquals("Clean Code", view.getTitle());
+        assertEquals("Robert Martin", view.getAuthor());
+        assertEquals("Programming", view.getCategory());
+        assertEquals("isbn-" + book.getId(), view.getIsbn());
+        assertTrue(view.isAvailable());
+
+        view.setAvailable(false);
+        assertFalse(store.get(book.getId()).isAvailable());
+        assertTrue(book.isAvailable(), "The stored copy is independent of the caller's book.");
+    }
+
+    @Test
+    void testReplacedAndRemovedBooksKeepTheirOldValuesInOldViews() {
+        Book first = book("plain-id", "First", "A", "X");
+        store.put("plain-id", first);
+        Book oldView = store.get("plain-id");
+
+        Book previous = store.put("plain-id", book("plain-id", "Second", "B", "Y"));
+
+        assertEquals("First", previous.getTitle());
+        assertEquals("First", oldView.getTitle());
+        assertEquals("Second", store.get("plain-id").getTitle());
+        assertEquals(1, store.size());
+
+        assertEquals("Second", store.remove("plain-id").getTitle());
+        assertNull(store.get("plain-id"));
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomChanges() {
+        Random random = new Random(3);
+        Map<String, String> expected = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) ids.add(i % 2 == 0 ? UUID.randomUUID().toString() : "id-" + i);
+
+        for (int step = 0; step < 20_000; step++) {
+            String id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), title(store.remove(id)));
+            } else {
+                String title = "Title " + step;
+                assertEquals(expected.put(id, title), title(store.put(id, book(id, title, "Author", null))));
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        for (String id : ids) assertEquals(expected.get(id), title(store.get(id)));
+        Map<String, String> iterated = new HashMap<>();
+        store.forEach((id, book) -> iterated.put(id, book.getTitle()));
+        assertEquals(expected, iterated);
+
+        store.entrySet().removeIf(entry -> entry.getKey().startsWith("id-"));
+        expected.keySet().removeIf(id -> id.startsWith("id-"));
+        assertEquals(expected.keySet(), store.keySet());
+    }
+
+    @Test
+    void testClearDoesNotDisturbEarlierViews() {
+        Book book = book("kept", "Kept", "A", "X");
+        store.put("kept", book);
+        Book view = store.get("kept");
+
+        store.clear();
+        store.put("other", book("other", "Other", "B", "Y"));
+
+        assertEquals("Kept", view.getTitle());
+        assertNull(store.get("kept"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testCompactionReclaimsRetiredRowsAndMovesLiveViews() {
+        Book kept = book("kept", "Kept", "A", "X");
+        store.put("kept", kept);
+        Book keptView = store.get("kept");
+        store.put("churn", book("churn", "Version 0", "B", "Y"));
+        Book oldVersion = store.get("churn");
+
+        for (int i = 1; i <= 10 * CompactBookStore.MIN_COMPACT_ROWS; i++) {
+            store.put("churn", book("churn", "Version " + i, "B", "Y"));
+        }
+        keptView.setAvailable(false);
+
+        assertTrue(store.rowCount() <= 2 * CompactBookStore.MIN_COMPACT_ROWS + 2, "Retired rows are reclaimed.");
+        assertTrue(store.arenaBytes() < 200 * CompactBookStore.MIN_COMPACT_ROWS, "Their arena bytes too.");
+        assertEquals("Kept", keptView.getTitle());
+        assertFalse(store.get("kept").isAvailable(), "A moved row keeps its availability.");
+        assertEquals("Version 0", oldVersion.getTitle());
+        assertEquals("Version " + 10 * CompactBookStore.MIN_COMPACT_ROWS, store.get("churn").getTitle());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void testFindsBooksByIsbnKey() {
+        CompactBookStore byKey = new CompactBookStore(isbn -> isbn.replace("-", ""));
+        byKey.put("a", new Book.Builder<>().id("a").title("A").isbn("978-1").build());
+        byKey.put("b", new Book.Builder<>().id("b").title("B").build());
+
+        assertEquals("A", byKey.findByIsbn("9781").getTitle());
+        assertNull(byKey.findByIsbn("978-2"));
+
+        byKey.put("a", new Book.Builder<>().id("a").title("A").isbn("978-2").build());
+        assertNull(byKey.findByIsbn("978-1"));
+        assertEquals("a", byKey.findByIsbn("9782").getId());
+        byKey.remove("a");
+        assertNull(byKey.findByIsbn("978-2"));
+    }
+
+    /**
+     * Heap held per book by the catalog: the book table, and the search index over what the table hands out.
+     * Asserted with wide margins so GC noise does not fail it.
+     */
+    @Test
+    void testCatalogFootprintPerBook() {
+        int count = 20_000;
+        String[] authors = new String[500];
+        for (int i = 0; i < authors.length; i++) authors[i] = "Author " + i;
+        List<Book> source = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            source.add(book(UUID.randomUUID().toString(), "Some Book Title " + i, authors[i % 500], "Category " + i % 20));
+        }
+
+        long before = usedHeap();
+        Map<String, Book> objects = new HashMap<>();
+        for (Book book : source) {
+            objects.put(book.getId(), book(new String(book.getId()), new String(book.getTitle()), book.getAuthor(), book.getCategory()));
+        }
+        long objectBytes = usedHeap() - before;
+
+        before = usedHeap();
+        BookIndex objectIndex = new BookIndex();
+        for (Book book : objects.values()) objectIndex.add(book);
+        long objectIndexBytes = usedHeap() - before;
+
+        before = usedHeap();
+        CompactBookStore compact = new CompactBookStore();
+        for (Book book : source) compact.put(book.getId(), book);
+        long compactBytes = usedHeap() - before;
+
+        before = usedHeap();
+        BookIndex compactIndex = new BookIndex();
+        for (Book book : source) compactIndex.add(compact.get(book.getId()));
+        long compactIndexBytes = usedHeap() - before;
+
+        assertTrue(compactBytes < objectBytes * 2 / 3,
+                "Column store " + compactBytes / count + " heap bytes/book, HashMap of books " + objectBytes / count);
+        assertTrue(compactBytes + compact.arenaBytes() < objectBytes,
+                "Column store " + (compactBytes + compact.arenaBytes()) / count + " bytes/book with its arena");
+        // The index holds one view per book and ints; no strings of its own beyond the distinct words
+        assertTrue(compactIndexBytes < objectIndexBytes + 64L * count,
+                "Index over views " + compactIndexBytes / count + " bytes/book, over books " + objectIndexBytes / count);
+        assertEquals(count, objects.size());
+        assertEquals(count, objectIndex.size());
+        assertEquals(count, compact.size());
+        assertEquals(count, compactIndex.size());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String title(Book book) {
+        return book == null ? null : book.getTitle();
+    }
+
+    private static Book book(String id, String title, String author, String category) {
+        return new Book.Builder<>().id(id).title(title).author(author).category(category).isbn("isbn-" + id).build();
+    }
+}
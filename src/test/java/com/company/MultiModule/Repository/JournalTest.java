@@ -0,0 +1,108 @@
+package com.company.MultiModule.Repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+
+    private static final String JOURNAL_FILE = "data/test-journal.log";
+
+    private final Journal journal = new Journal(JOURNAL_FILE);
+
+    @AfterEach
+    void cleanup() throws IOException {
+        journal.close();
+        Files.deleteIfExists(Paths.get(JOURNAL_FILE));
+    }
+
+    @Test
+    void testAppendAndReplayInOrder() throws IOException {
+        journal.append("B,u1,b1");
+        journal.append("B,u1,b2");
+        journal.append("R,u1,b1");
+
+        List<String> records = new ArrayList<>();
+        journal.replay(records::add);
+
+        assertEquals(List.of("B,u1,b1", "B,u1,b2", "R,u1,b1"), records);
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws IOException {
+        journal.append("B,u1,b1");
+        journal.close();
+
+        // Simulate a crash half way through writing the next record
+        Files.write(Paths.get(JOURNAL_FILE), "B,u2,b".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        List<String> records = new ArrayList<>();
+        journal.replay(records::add);
+
+        assertEquals(List.of("B,u1,b1"), records);
+    }
+
+    @Test
+    void testTruncateDropsRecords() throws IOException {
+        journal.append("B,u1,b1");
+        journal.truncate();
+        journal.append("B,u1,b2");
+
+        List<String> records = new ArrayList<>();
+        journal.replay(records::add);
+
+        assertEquals(List.of("B,u1,b2"), records);
+    }
+
+    @Test
+    void testFlushWaitsForQueuedAppends() throws IOException {
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            durable.add(journal.appendAsync("B,u1,b" + i));
+        }
+
+        journal.flush();
+
+        assertTrue(durable.stream().allMatch(CompletableFuture::isDone), "Flush returned before a queued append.");
+        journal.truncate();
+        List<String> records = new ArrayList<>();
+        journal.replay(records::add);
+        assertEquals(List.of(), records, "Nothing queued before the flush may land after the truncate.");
+    }
+
+    @Test
+    void testConcurrentAppendsAreGroupCommitted() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                List<CompletableFuture<Void>> durable = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    durable.add(journal.appendAsync("B,u" + thread + ",b" + i));
+                }
+                CompletableFuture.allOf(durable.toArray(CompletableFuture<?>[]::new)).join();
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) f.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        Set<String> records = new HashSet<>();
+        journal.replay(records::add);
+
+        assertEquals(400, records.size(), "Every acknowledged record should be on disk.");
+        assertTrue(journal.commitCount() < 400,
+                "Concurrent appends should share fsyncs, got " + journal.commitCount() + " for 400 records.");
+    }
+}
@@ -0,0 +1,64 @@
+package com.company.MultiModule.Repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCsvImporterTest {
+
+    private static final String CSV_FILE = "data/test-import.csv";
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(Paths.get(CSV_FILE));
+    }
+
+    @Test
+    void testRowsKeepFileOrderAcrossChunks() throws IOException {
+        int rows = 300_000; // several MB, so the file is split into multiple ranges
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(CSV_FILE), StandardCharsets.UTF_8)) {
+            out.write("id,isbn,title,author,category,available\n");
+            for (int i = 0; i < rows; i++) {
+                out.write(i + ",isbn-" + i + ",Title %2C " + i + ",Author,Category,true\n");
+            }
+        }
+
+        ParallelCsvImporter.Result<String[]> result = ParallelCsvImporter.importFile(CSV_FILE, 6, fields -> fields);
+
+        assertEquals(rows, result.rows().size());
+        assertTrue(result.errors().isEmpty());
+        for (int i = 0; i < rows; i += 9973) {
+            assertEquals(String.valueOf(i), result.rows().get(i)[0]);
+        }
+        assertEquals("Title , 42", result.rows().get(42)[2]);
+        assertEquals(0, result.rejectedCount());
+    }
+
+    @Test
+    void testMalformedRowsAreReportedWithLineNumbers() throws IOException {
+        StringBuilder csv = new StringBuilder("id,isbn,title,author,category,available\r\n");
+        for (int i = 0; i < 100_000; i++) {
+            if (i == 10) csv.append("broken row\r\n");              // line 12
+            if (i == 99_000) csv.append(",,Untitled,,,true\r\n");   // line 99003
+            csv.append(i).append(",isbn,Title,Author,Category,true\r\n");
+        }
+        Files.write(Paths.get(CSV_FILE), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        ParallelCsvImporter.Result<String> result = ParallelCsvImporter.importFile(CSV_FILE, 6, fields -> {
+            if (fields[0].isEmpty()) throw new IllegalArgumentException("missing id");
+            return fields[0];
+        });
+
+        assertEquals(100_000, result.rows().size());
+        assertEquals(2, result.rejectedCount());
+        assertEquals(List.of("line 12: expected 6 fields but found 1", "line 99003: missing id"), result.errors());
+        assertEquals("99999", result.rows().get(99_999), "Windows line endings should be stripped.");
+    }
+}
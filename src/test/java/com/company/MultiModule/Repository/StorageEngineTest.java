@@ -0,0 +1,206 @@
+package com.company.MultiModule.Repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageEngineTest {
+
+    private static final String DATA_DIR = "data/test-engines";
+    private static final String[] COLUMNS = {"id", "title", "available"};
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Path dir = Paths.get(DATA_DIR);
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try { Files.deleteIfExists(path); } catch (IOException ignored) {}
+            });
+        }
+    }
+
+    @Test
+    void testCsvEngineRoundTrip() throws IOException {
+        assertRoundTrip(new CsvStorageEngine(DATA_DIR));
+    }
+
+    @Test
+    void testBinaryEngineRoundTrip() throws IOException {
+        assertRoundTrip(new BinarySnapshotEngine(DATA_DIR));
+    }
+
+    @Test
+    void testJournalEngineRoundTrip() throws IOException {
+        assertRoundTrip(new JournalStorageEngine(DATA_DIR));
+    }
+
+    @Test
+    void testBTreeEngineRoundTrip() throws IOException {
+        assertRoundTrip(new BTreeStorageEngine(DATA_DIR));
+    }
+
+    @Test
+    void testBTreeEngineKeepsTablesApart() throws IOException {
+        BTreeStorageEngine engine = new BTreeStorageEngine(DATA_DIR);
+        engine.write("books", COLUMNS, 1, sink -> sink.accept("1", "Book", "true"));
+        engine.write("borrow", new String[]{"user_id", "book_id"}, 1, sink -> sink.accept("u1", "1"));
+        engine.write("books", COLUMNS, 1, sink -> sink.accept("1", "Book", "false"));
+
+        List<String[]> rows = readAll(engine);
+        assertEquals(1, rows.size());
+        assertEquals("false", rows.get(0)[2]);
+        assertTrue(engine.exists("borrow"));
+    }
+
+    @Test
+    void testBTreeEngineRejectsOversizedRowWithoutChangingTheTable() throws IOException {
+        BTreeStorageEngine engine = new BTreeStorageEngine(DATA_DIR);
+        engine.write("books", COLUMNS, 2, sink -> {
+            sink.accept("1", "First", "true");
+            sink.accept("2", "Second", "true");
+        });
+
+        String longTitle = "x".repeat(BPlusTreeStore.MAX_ENTRY_BYTES);
+        IOException ex = assertThrows(IOException.class, () -> engine.write("books", COLUMNS, 2, sink -> {
+            sink.accept("2", "Second", "false");
+            sink.accept("3", longTitle, "true");
+        }));
+        assertTrue(ex.getMessage().contains("byte limit"));
+
+        List<String[]> rows = readAll(new BTreeStorageEngine(DATA_DIR));
+        assertEquals(2, rows.size(), "The delete of row 1 must not have been applied.");
+        assertArrayEquals(new String[]{"2", "Second", "true"}, rows.get(1));
+    }
+
+    @Test
+    void testBTreeEngineKeepsRowsSharingAnId() throws IOException {
+        BTreeStorageEngine engine = new BTreeStorageEngine(DATA_DIR);
+        engine.write("books", COLUMNS, 3, sink -> {
+            sink.accept("u1", "a", "true");
+            sink.accept("u1", "b", "true");
+            sink.accept("u2", "c", "true");
+        });
+        engine.write("books", COLUMNS, 2, sink -> {
+            sink.accept("u1", "b", "true");
+            sink.accept("u2", "c", "true");
+        });
+
+        List<String[]> rows = readAll(engine);
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{"u1", "b", "true"}, rows.get(0));
+    }
+
+    @Test
+    void testBinaryEngineImportsCsvWhenNoSnapshot() throws IOException {
+        new CsvStorageEngine(DATA_DIR).write("books", COLUMNS, 1, sink -> sink.accept("1", "Imported", "true"));
+
+        List<String[]> rows = readAll(new BinarySnapshotEngine(DATA_DIR));
+
+        assertEquals(1, rows.size());
+        assertEquals("Imported", rows.get(0)[1]);
+    }
+
+    @Test
+    void testJournalEngineAppendsOnlyChangedRows() throws IOException {
+        JournalStorageEngine engine = new JournalStorageEngine(DATA_DIR);
+        engine.write("books", COLUMNS, 2, sink -> {
+            sink.accept("1", "First", "true");
+            sink.accept("2", "Second", "true");
+        });
+        engine.write("books", COLUMNS, 2, sink -> {
+            sink.accept("1", "First", "true");
+            sink.accept("2", "Second", "false");
+        });
+
+        // two initial puts, then one delete and one put for the changed row
+        assertEquals(4, Files.readAllLines(Paths.get(DATA_DIR, "books.log")).size());
+
+        List<String[]> rows = readAll(new JournalStorageEngine(DATA_DIR));
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().anyMatch(r -> r[0].equals("2") && r[2].equals("false")));
+    }
+
+    @Test
+    void testDeltaEngineWritesOnlyChangedRows() throws IOException {
+        CsvStorageEngine csv = new CsvStorageEngine(DATA_DIR);
+        DeltaStorageEngine engine = new DeltaStorageEngine(csv, DATA_DIR);
+        engine.write("books", COLUMNS, 2, sink -> {
+            sink.accept("1", "First", "true");
+            sink.accept("2", "Second", "true");
+        });
+
+        engine.writeDelta("books", COLUMNS, List.<String[]>of(new String[]{"2", "Second", "false"}), List.of("1"));
+
+        assertEquals(2, readAll(csv).size(), "The base table is untouched until compaction.");
+        assertEquals(2, Files.readAllLines(Paths.get(DATA_DIR, "books.patch")).size());
+
+        List<String[]> rows = readAll(new DeltaStorageEngine(csv, DATA_DIR));
+        assertEquals(1, rows.size());
+        assertArrayEquals(new String[]{"2", "Second", "false"}, rows.get(0));
+    }
+
+    @Test
+    void testDeltaEngineAppliesPatchWhileStreamingTheBase() throws IOException {
+        CsvStorageEngine csv = new CsvStorageEngine(DATA_DIR);
+        DeltaStorageEngine engine = new DeltaStorageEngine(csv, DATA_DIR);
+        engine.write("books", COLUMNS, 3, sink -> {
+            sink.accept("1", "First", "true");
+            sink.accept("2", "Second", "true");
+            sink.accept("3", "Third", "true");
+        });
+
+        engine.writeDelta("books", COLUMNS, List.<String[]>of(new String[]{"4", "Fourth", "true"}), List.of());
+        engine.writeDelta("books", COLUMNS, List.<String[]>of(new String[]{"2", "Second", "false"}), List.of("1"));
+
+        List<String[]> rows = readAll(new DeltaStorageEngine(csv, DATA_DIR));
+        assertEquals(List.of("2", "3", "4"), rows.stream().map(r -> r[0]).toList(), "Base order, then new rows.");
+        assertEquals("false", rows.get(0)[2]);
+    }
+
+    @Test
+    void testDeltaEngineCompactsPatchIntoBase() throws IOException {
+        CsvStorageEngine csv = new CsvStorageEngine(DATA_DIR);
+        DeltaStorageEngine engine = new DeltaStorageEngine(csv, DATA_DIR);
+        engine.write("books", COLUMNS, 1, sink -> sink.accept("0", "Base", "true"));
+
+        for (int i = 1; i <= 1100; i++) {
+            engine.writeDelta("books", COLUMNS, List.<String[]>of(new String[]{String.valueOf(i), "Book " + i, "true"}), List.of());
+        }
+
+        // compaction ran once the patch passed 1024 records; later rows are in a fresh patch
+        assertEquals(1026, readAll(csv).size(), "The patch should have been folded into the base table.");
+        assertEquals(75, Files.readAllLines(Paths.get(DATA_DIR, "books.patch")).size());
+        assertEquals(1101, readAll(engine).size());
+    }
+
+    private void assertRoundTrip(StorageEngine engine) throws IOException {
+        assertFalse(engine.exists("books"));
+
+        engine.write("books", COLUMNS, 2, sink -> {
+            sink.accept("1", "Algorithms, 4th Edition", "true");
+            sink.accept("2", "Clean Code", "false");
+        });
+
+        assertTrue(engine.exists("books"));
+        List<String[]> rows = readAll(engine);
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().anyMatch(r -> r[1].equals("Algorithms, 4th Edition")),
+                "Commas inside values must survive a round trip.");
+        assertTrue(rows.stream().anyMatch(r -> r[0].equals("2") && r[2].equals("false")));
+    }
+
+    private List<String[]> readAll(StorageEngine engine) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        engine.read("books", rows::add);
+        return rows;
+    }
+}
@@ -41,4 +41,16 @@ class StudentTest {
         assertEquals(s1, s1);    // same object
         assertEquals(s1.hashCode(), s1.hashCode());
     }
+
+    @Test
+    void testStudentBuilderRestoresPersistedId() {
+        Student student = new Student.StudentBuilder()
+                .id("persisted-id-1")
+                .name("Restored")
+                .email("r@example.com")
+                .password("123".toCharArray())
+                .build();
+
+        assertEquals("persisted-id-1", student.getId());
+    }
 }
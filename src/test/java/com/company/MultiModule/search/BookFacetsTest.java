@@ -0,0 +1,59 @@
+package com.company.MultiModule.search;
+
+import com.company.MultiModule.models.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookFacetsTest {
+
+    private final BookFacets facets = new BookFacets();
+
+    @Test
+    void testCountsFollowAddsRemovalsAndAvailability() {
+        Book clean = book("Clean Code", "Robert Martin", "Programming");
+        Book architecture = book("Clean Architecture", "Robert Martin", "Programming");
+        Book dune = book("Dune", "Frank Herbert", "Fiction");
+        facets.add(clean);
+        facets.add(architecture);
+        facets.add(dune);
+
+        clean.setAvailable(false);
+        facets.availabilityChanged("Programming", false);
+        facets.remove(dune);
+
+        assertEquals(2, facets.booksInCategory("Programming"));
+        assertEquals(1, facets.availableInCategory("Programming"));
+        assertEquals(2, facets.booksByAuthor("Robert Martin"));
+        assertEquals(0, facets.booksInCategory("Fiction"));
+        assertEquals(Map.of("Programming", 2L), facets.categoryCounts(), "Empty categories are not listed.");
+    }
+
+    @Test
+    void testConcurrentAvailabilityChangesAreNotLost() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) facets.add(book("Book " + i, "Author", "Shared"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    facets.availabilityChanged("Shared", false);
+                    facets.availabilityChanged("Shared", true);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, facets.availableInCategory("Shared"));
+    }
+
+    private static Book book(String title, String author, String category) {
+        return new Book.Builder<>().title(title).author(author).category(category).isbn(title).build();
+    }
+}
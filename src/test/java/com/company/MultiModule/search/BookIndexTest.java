@@ -0,0 +1,199 @@
+package com.company.MultiModule.search;
+
+import com.company.MultiModule.models.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookIndexTest {
+
+    private static final String[] WORDS = {"java", "clean", "code", "effective", "pragmatic", "programmer",
+            "algorithms", "design", "patterns", "refactoring", "kathy", "sierra", "martin", "bloch"};
+
+    private final BookIndex index = new BookIndex();
+
+    @Test
+    void testContainsMatchesSubstringScan() {
+        Random random = new Random(7);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Book book = book("id-" + i, words(random, 3), words(random, 2), WORDS[random.nextInt(WORDS.length)]);
+            books.add(book);
+            index.add(book);
+        }
+
+        for (String keyword : List.of("java", "Ava", "code re", "ma", "x", "patterns design", "ERN", "zzz")) {
+            String k = keyword.toLowerCase(Locale.ROOT);
+            Set<String> expected = books.stream()
+                    .filter(b -> b.getTitle().toLowerCase(Locale.ROOT).contains(k)
+                            || b.getAuthor().toLowerCase(Locale.ROOT).contains(k))
+                    .map(Book::getId)
+                    .collect(Collectors.toSet());
+            Set<String> actual = index.contains(keyword).stream().map(Book::getId).collect(Collectors.toSet());
+            assertEquals(expected, actual, "Mismatch for '" + keyword + "'");
+        }
+    }
+
+    @Test
+    void testUpdatesAndRemovalsAreIncremental() {
+        index.add(book("1", "Clean Code", "Robert Martin", "Programming"));
+        index.add(book("2", "Effective Java", "Joshua Bloch", "Java"));
+
+        index.add(book("1", "Clean Architecture", "Robert Martin", "Programming"));
+        index.remove("2");
+
+        assertEquals(1, index.size());
+        assertTrue(index.contains("code").isEmpty(), "The old title should no longer match.");
+        assertEquals("Clean Architecture", index.contains("architect").get(0).getTitle());
+        assertTrue(index.contains("java").isEmpty());
+    }
+
+    @Test
+    void testTokenQueryUsesLastWordAsPrefix() {
+        index.add(book("1", "Head First Java", "Kathy Sierra", "Java"));
+        index.add(book("2", "Java Concurrency in Practice", "Brian Goetz", "Programming"));
+        index.add(book("3", "JavaScript: The Good Parts", "Douglas Crockford", "Web"));
+
+        assertEquals(List.of("1", "2", "3"), ids(index.matchTokens("jav")));
+        assertEquals(List.of("2"), ids(index.matchTokens("java c")), "Only the last word is a prefix.");
+        assertEquals(List.of("2"), ids(index.matchTokens("java prog")), "Category words should be indexed.");
+        assertTrue(index.matchTokens("python").isEmpty());
+    }
+
+    @Test
+    void testRebuildKeepsResults() {
+        for (int i = 0; i < 3_000; i++) {
+            index.add(book("id-" + i, "Title " + i, "Author", "Category"));
+        }
+        for (int i = 0; i < 2_500; i++) {
+            index.remove("id-" + i);
+        }
+
+        assertEquals(500, index.size());
+        assertEquals(List.of("id-2999"), ids(index.contains("title 2999")));
+        assertEquals(500, index.matchTokens("author").size());
+    }
+
+    @Test
+    void testRankedSearchPrefersTitleMatchesAndPages() {
+        index.add(book("1", "Cooking for Programmers", "Java Chef", "Food"));
+        index.add(book("2", "Java Java Everywhere", "Someone", "Programming"));
+        index.add(book("3", "Effective Java", "Joshua Bloch", "Programming"));
+        index.add(book("4", "Gardening", "Green Thumb", "Java"));
+
+        SearchPage first = index.search("java", 0, 2);
+        assertEquals(4, first.totalMatches());
+        assertEquals(List.of("2", "3"), ids(first.books()), "Repeated title words rank first, then shorter titles.");
+        assertTrue(first.hasMore());
+
+        SearchPage second = index.search("java", 2, 2);
+        assertEquals(List.of("1", "4"), ids(second.books()), "Author matches outrank category matches.");
+        assertFalse(second.hasMore());
+
+        assertTrue(index.search("java", 10, 2).books().isEmpty());
+    }
+
+    @Test
+    void testRankedSearchFallsBackToSubstrings() {
+        index.add(book("1", "JavaScript: The Good Parts", "Douglas Crockford", "Web"));
+        index.add(book("2", "Clean Code", "Robert Martin", "Programming"));
+
+        SearchPage page = index.search("script", 0, 10);
+
+        assertEquals(1, page.totalMatches());
+        assertEquals("1", page.books().get(0).getId());
+    }
+
+    @Test
+    void testRankedSearchKeepsOnlyTheRequestedPage() {
+        for (int i = 0; i < 10_000; i++) {
+            index.add(book("id-" + i, "Book " + i + (i % 1000 == 0 ? " Book" : ""), "Author", "Category"));
+        }
+
+        SearchPage page = index.search("book", 0, 5);
+
+        assertEquals(10_000, page.totalMatches());
+        assertEquals(List.of("id-0", "id-1000", "id-2000", "id-3000", "id-4000"), ids(page.books()));
+    }
+
+    @Test
+    void testFuzzySearchForgivesTyposAndPrefersCloserSpellings() {
+        index.add(book("1", "Effective Java", "Joshua Bloch", "Programming"));
+        index.add(book("2", "Java Puzzlers", "Joshua Bloh", "Programming"));
+        index.add(book("3", "Clean Code", "Robert Martin", "Programming"));
+
+        SearchPage page = index.fuzzySearch("jousha bloch", 2, 0, 10);
+
+        assertEquals(List.of("1", "2"), ids(page.books()));
+        assertEquals(List.of("3"), ids(index.fuzzySearch("robret martn", 2, 0, 10).books()));
+        assertTrue(index.fuzzySearch("jousha bloch", 0, 0, 10).books().isEmpty());
+        assertTrue(index.fuzzySearch("koshua", 2, 0, 10).books().isEmpty(), "The first letter must match.");
+        assertEquals(List.of("3"), ids(index.fuzzySearch("cde", 2, 0, 10).books()));
+        assertTrue(index.fuzzySearch("cxdx", 2, 0, 10).books().isEmpty(), "Short words get a single edit.");
+    }
+
+    @Test
+    void testFuzzyMatchesAgreeWithEditDistanceScan() {
+        Random random = new Random(11);
+        Map<String, String> titles = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(7);
+            for (int c = 0; c < length; c++) word.append((char) ('a' + random.nextInt(6)));
+            titles.put(String.valueOf(i), word.toString());
+            index.add(book(String.valueOf(i), word.toString(), "", ""));
+        }
+
+        for (int q = 0; q < 200; q++) {
+            String query = titles.get(String.valueOf(random.nextInt(3000)));
+            if (random.nextBoolean()) query = query.substring(1) + (char) ('a' + random.nextInt(6));
+            int edits = Math.min(2, query.length() / 3);
+
+            Set<String> expected = new TreeSet<>();
+            for (Map.Entry<String, String> title : titles.entrySet()) {
+                String candidate = title.getValue();
+                if (candidate.charAt(0) == query.charAt(0) && editDistance(query, candidate) <= edits) {
+                    expected.add(title.getKey());
+                }
+            }
+            Set<String> actual = new TreeSet<>(ids(index.fuzzySearch(query, 2, 0, Integer.MAX_VALUE).books()));
+            assertEquals(expected, actual, "query " + query);
+        }
+    }
+
+    private static Book book(String id, String title, String author, String category) {
+        return new Book.Builder<>().id(id).title(title).author(author).category(category).isbn(id).build();
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(' ');
+            String word = WORDS[random.nextInt(WORDS.length)];
+            text.append(random.nextBoolean() ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        return text.toString();
+    }
+
+    private static int editDistance(String a, String b) {
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) row[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            int diagonal = row[0];
+            row[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int above = row[j];
+                row[j] = Math.min(Math.min(row[j] + 1, row[j - 1] + 1), diagonal + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+                diagonal = above;
+            }
+        }
+        return row[b.length()];
+    }
+
+    private static List<String> ids(List<Book> books) {
+        return books.stream().map(Book::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,72 @@
+package com.company.MultiModule.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionTrieTest {
+
+    private static final String TRIE_FILE = "data/test-completions.trie";
+
+    private final CompletionTrie trie = new CompletionTrie();
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(Paths.get(TRIE_FILE));
+    }
+
+    @Test
+    void testCompletionsAreOrderedByWeight() {
+        trie.add("Clean Code", 1);
+        trie.add("Clean Architecture", 3);
+        trie.add("Clojure for the Brave", 2);
+        trie.add("Java", 10);
+
+        assertEquals(List.of("Clean Architecture", "Clojure for the Brave", "Clean Code"), trie.complete("cl", 5));
+        assertEquals(List.of("Clean Architecture"), trie.complete("CL", 1));
+        assertTrue(trie.complete("python", 5).isEmpty());
+
+        trie.add("Clean Code", 5);
+        assertEquals("Clean Code", trie.complete("clean", 1).get(0), "A borrow spike should move a title up.");
+    }
+
+    @Test
+    void testRemovalRestoresTheNextBest() {
+        for (int i = 0; i < 20; i++) trie.add("Book " + i, i + 1);
+
+        assertEquals("Book 19", trie.complete("book", 1).get(0));
+
+        trie.remove("Book 19", 20);
+        trie.remove("Book 18", 10);
+
+        assertEquals(List.of("Book 17", "Book 16"), trie.complete("book", 2));
+        assertEquals(9, trie.weightOf("Book 18"));
+        assertEquals(0, trie.weightOf("Book 19"));
+        assertEquals(CompletionTrie.TOP_K, trie.complete("b", 100).size());
+    }
+
+    @Test
+    void testSaveAndLoadRoundTrip() throws IOException {
+        trie.add("Effective Java", 4);
+        trie.add("Head First Java", 2);
+        trie.add("Joshua Bloch", 1);
+        trie.save(TRIE_FILE, 42L);
+        assertFalse(trie.isModified());
+
+        CompletionTrie restored = new CompletionTrie();
+        assertFalse(restored.load(TRIE_FILE, 7L), "A trie saved for another catalog should be ignored.");
+        assertTrue(restored.load(TRIE_FILE, 42L));
+
+        assertEquals(List.of("Effective Java"), restored.complete("e", 5));
+        assertEquals(List.of("Joshua Bloch"), restored.complete("jo", 5));
+        assertEquals(2, restored.weightOf("head first java"));
+
+        restored.add("Effective C++", 1);
+        assertEquals(List.of("Effective Java", "Effective C++"), restored.complete("effective", 5));
+    }
+}
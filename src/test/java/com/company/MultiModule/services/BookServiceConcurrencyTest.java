@@ -0,0 +1,127 @@
+package com.company.MultiModule.services;
+
+import com.company.MultiModule.exceptions.LibraryException;
+import com.company.MultiModule.models.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookServiceConcurrencyTest {
+
+    private static final String CATEGORY = "Stress Testing";
+    private final BookService bookService = BookService.getInstance();
+
+    @AfterEach
+    void cleanup() {
+        bookService.clearTestData();
+    }
+
+    @Test
+    void testConcurrentWritersKeepCatalogAndIndexesInStep() throws Exception {
+        int threads = 8;
+        int addsPerThread = 2_000;
+        int isbns = 300;
+        List<String> added = Collections.synchronizedList(new ArrayList<>());
+
+        runConcurrently(threads, t -> {
+            Random random = new Random(t);
+            for (int i = 0; i < addsPerThread; i++) {
+                Book book = new Book.Builder<>()
+                        .title("Stress " + t + "-" + i)
+                        .author("Writer " + t)
+                        .category(CATEGORY)
+                        .isbn("TEST-STRESS-" + random.nextInt(isbns))
+                        .build();
+                bookService.addBook(book);
+                added.add(book.getId());
+                bookService.setAvailability(added.get(random.nextInt(added.size())), random.nextBoolean());
+            }
+        });
+
+        int stored = 0;
+        int available = 0;
+        for (int i = 0; i < isbns; i++) {
+            Book book;
+            try {
+                book = bookService.findByIsbn("TEST-STRESS-" + i);
+            } catch (LibraryException e) {
+                continue;
+            }
+            assertEquals("TEST-STRESS-" + i, bookService.findById(book.getId()).getIsbn());
+            stored++;
+            if (book.isAvailable()) available++;
+        }
+        long live = added.stream().filter(bookService::exists).count();
+
+        assertEquals(stored, live, "Every ISBN should be held by exactly one stored book.");
+        assertEquals(stored, bookService.facets().booksInCategory(CATEGORY));
+        assertEquals(available, bookService.facets().availableInCategory(CATEGORY));
+        assertEquals(stored, bookService.search("stress", 0, Integer.MAX_VALUE).totalMatches());
+    }
+
+    @Test
+    void testLockFreeReadsNeverSeeAHalfWrittenBook() throws Exception {
+        int bookCount = 200;
+        String[] ids = new String[bookCount];
+        for (int i = 0; i < bookCount; i++) {
+            Book book = new Book.Builder<>().title("Version 0 of " + i).author("Reader").category(CATEGORY).isbn("TEST-READ-" + i).build();
+            bookService.addBook(book);
+            ids[i] = book.getId();
+        }
+
+        int readers = 4;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        LongAdder reads = new LongAdder();
+        runConcurrently(readers + 1, t -> {
+            Random random = new Random(t);
+            if (t == readers) {
+                // Rewrites titles, which replaces rows and eventually compacts the store under the readers
+                for (int version = 1; System.nanoTime() < deadline; version++) {
+                    int i = random.nextInt(bookCount);
+                    bookService.addBook(new Book.Builder<>().id(ids[i]).title("Version " + version + " of " + i)
+                            .author("Reader").category(CATEGORY).isbn("TEST-READ-" + i).build());
+                }
+                return;
+            }
+            while (System.nanoTime() < deadline) {
+                int i = random.nextInt(bookCount);
+                Book book = bookService.findById(ids[i]);
+                assertNotNull(book);
+                assertEquals(ids[i], book.getId());
+                assertTrue(book.getTitle().endsWith(" of " + i), book.getTitle());
+                assertEquals("TEST-READ-" + i, book.getIsbn());
+                reads.increment();
+            }
+        });
+        assertTrue(reads.sum() > 0);
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                worker.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) future.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -5,7 +5,10 @@ import com.company.MultiModule.models.Book;
 import org.junit.jupiter.api.*;
 
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -145,4 +148,130 @@ class BookServiceTest {
         assertTrue(bookService.exists(book.getId()), "Book should exist by ID.");
         assertTrue(bookService.existsByIsbn("TEST-EXISTS"), "Book should exist by ISBN.");
     }
+
+    @Test
+    @Order(8)
+    void testIsbnIsUniqueAndNormalized() throws LibraryException {
+        Book first = new Book.Builder<>()
+                .title("First Edition")
+                .author("Author")
+                .category("General")
+                .isbn("TEST-978-1")
+                .build();
+        Book second = new Book.Builder<>()
+                .title("Second Edition")
+                .author("Author")
+                .category("General")
+                .isbn("TEST-9781")
+                .build();
+
+        assertTrue(bookService.addBook(first));
+        assertFalse(bookService.addBook(second), "A second book with the same ISBN should be rejected.");
+
+        assertTrue(bookService.exists(first.getId()), "The original book must stay.");
+        assertFalse(bookService.exists(second.getId()));
+        assertEquals(first.getId(), bookService.findByIsbn("test 978-1").getId());
+    }
+
+    @Test
+    @Order(9)
+    void testFacetsFollowAvailability() {
+        Book book = new Book.Builder<>()
+                .title("Facet Book")
+                .author("Counter")
+                .category("TEST-Facets")
+                .isbn("TEST-FACET")
+                .build();
+
+        bookService.addBook(book);
+        bookService.setAvailability(book.getId(), false);
+
+        assertEquals(1, bookService.facets().booksInCategory("TEST-Facets"));
+        assertEquals(0, bookService.facets().availableInCategory("TEST-Facets"));
+
+        bookService.clearTestData();
+        assertEquals(0, bookService.facets().booksInCategory("TEST-Facets"));
+    }
+
+    @Test
+    @Order(10)
+    void testCatalogViewIsSharedUntilTheCatalogChanges() {
+        CatalogView before = bookService.catalog();
+        assertSame(before, bookService.catalog(), "Unchanged catalog should reuse the snapshot.");
+
+        Book book = new Book.Builder<>()
+                .title("Snapshot Book")
+                .author("Viewer")
+                .category("Views")
+                .isbn("TEST-VIEW")
+                .build();
+        bookService.addBook(book);
+
+        CatalogView after = bookService.catalog();
+        assertNotSame(before, after);
+        assertEquals(before.size() + 1, after.size());
+        assertFalse(before.contains(book), "An older view should not see later additions.");
+        assertEquals(after.size(), after.stream().parallel().count());
+        assertEquals(Math.min(3, after.size()), after.page(0, 3).size());
+        assertTrue(after.page(after.size(), 3).isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> after.add(book));
+    }
+
+    @Test
+    @Order(11)
+    void testAutocompleteFollowsAddsAndRemovals() {
+        Book book = new Book.Builder<>()
+                .title("Zymurgy for Testers")
+                .author("Zed Brewer")
+                .category("Testing")
+                .isbn("TEST-ZYM")
+                .build();
+
+        bookService.addBook(book);
+        assertEquals(List.of("Zymurgy for Testers"), bookService.autocomplete("zymu", 5));
+
+        bookService.clearTestData();
+        assertTrue(bookService.autocomplete("zymu", 5).isEmpty());
+    }
+
+    @Test
+    @Order(12)
+    void testImportReportsMalformedRowsAndCollisions() throws Exception {
+        Book existing = new Book.Builder<>()
+                .title("Already Here")
+                .author("Test Author")
+                .category("Testing")
+                .isbn("TEST-IMPORT-0")
+                .build();
+        bookService.addBook(existing);
+
+        Path csv = Files.createTempFile("books-import", ".csv");
+        String good = UUID.randomUUID().toString();
+        String bad = UUID.randomUUID().toString();
+        String duplicate = UUID.randomUUID().toString();
+        Files.write(csv, List.of(
+                "id,isbn,title,author,category,available",
+                good + ",TEST-IMPORT-1,Imported,Author,Testing,false",
+                bad + ",TEST-IMPORT-2,Broken,Author,Testing,yes",
+                duplicate + ",TEST-IMPORT-1,Copy,Author,Testing,true",
+                good + ",TEST-IMPORT-3,Second Copy,Author,Testing,true",
+                existing.getId() + ",TEST-IMPORT-4,Overwrite,Author,Testing,true"));
+        try {
+            List<String> errors = bookService.importCsv(csv.toString());
+
+            assertEquals(4, errors.size(), errors.toString());
+            assertTrue(errors.get(0).contains("available"), errors.get(0));
+            assertTrue(errors.get(1).contains("ISBN"), errors.get(1));
+            assertTrue(errors.get(2).contains(good) && errors.get(2).contains("id"), errors.get(2));
+            assertTrue(errors.get(3).contains(existing.getId()) && errors.get(3).contains("id"), errors.get(3));
+            assertEquals("Imported", bookService.findById(good).getTitle(), "The first row with an id keeps it.");
+            assertEquals("Already Here", bookService.findById(existing.getId()).getTitle(),
+                    "An import must not overwrite a catalog book.");
+            assertNull(bookService.findById(duplicate), "The first book with an ISBN keeps it.");
+            assertNull(bookService.findById(bad), "A row with a malformed flag must not be imported.");
+            assertTrue(bookService.search("Imported").stream().anyMatch(b -> b.getId().equals(good)));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
 }
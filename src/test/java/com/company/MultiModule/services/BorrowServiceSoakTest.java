@@ -0,0 +1,87 @@
+package com.company.MultiModule.services;
+
+import com.company.MultiModule.exceptions.BookUnavailableException;
+import com.company.MultiModule.models.Book;
+import com.company.MultiModule.models.Student;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keeps borrowers cycling through a large catalog with a few hot books and checks that the
+ * per-book wait state stays bounded by the number of threads and is gone once they stop.
+ */
+class BorrowServiceSoakTest {
+
+    private static final int BOOKS = 2_000;
+    private static final int HOT_BOOKS = 3;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 150;
+
+    private final BorrowService borrowService = BorrowService.getInstance();
+    private final BookService bookService = BookService.getInstance();
+
+    @AfterEach
+    void cleanup() {
+        bookService.clearTestData();
+    }
+
+    @Test
+    void testWaitQueuesStayBoundedAndDrain() throws Exception {
+        String[] ids = new String[BOOKS];
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book.Builder<>()
+                    .title("Soak " + i)
+                    .author("Soak Author")
+                    .category("Soak")
+                    .isbn("TEST-SOAK-" + i)
+                    .build();
+            bookService.addBook(book);
+            ids[i] = book.getId();
+        }
+
+        AtomicInteger peakQueues = new AtomicInteger();
+        AtomicInteger borrows = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            Student student = new Student.StudentBuilder()
+                    .name("Soak Student " + t)
+                    .email("soak" + t + "@example.com")
+                    .password("soak".toCharArray())
+                    .borrowLimit(1)
+                    .build();
+            futures.add(pool.submit(() -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < ROUNDS; i++) {
+                    // Most borrows go to a few hot books so borrowers queue up on them
+                    String id = random.nextInt(10) < 7 ? ids[random.nextInt(HOT_BOOKS)] : ids[random.nextInt(BOOKS)];
+                    try {
+                        borrowService.borrowBook(student, id);
+                    } catch (BookUnavailableException e) {
+                        continue;
+                    }
+                    borrows.incrementAndGet();
+                    peakQueues.accumulateAndGet(borrowService.waitQueueCount(), Math::max);
+                    borrowService.returnBook(student, id);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) future.get(5, TimeUnit.MINUTES);
+        pool.shutdown();
+
+        assertTrue(borrows.get() > 0, "Some borrows should have succeeded.");
+        assertTrue(peakQueues.get() <= THREADS, "Wait queues are bounded by waiting threads.");
+        assertEquals(0, borrowService.waitQueueCount(), "Idle books keep no wait state.");
+        for (String id : ids) assertTrue(bookService.isAvailable(id));
+    }
+}
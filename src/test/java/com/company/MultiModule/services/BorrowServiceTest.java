@@ -3,13 +3,18 @@ package com.company.MultiModule.services;
 
 import com.company.MultiModule.exceptions.*;
 import com.company.MultiModule.models.Book;
+import com.company.MultiModule.models.Librarian;
 import com.company.MultiModule.models.Student;
 import com.company.MultiModule.models.User;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,13 +41,19 @@ class BorrowServiceTest {
         book = new Book.Builder<>()
                 .title("Effective Java")
                 .author("Joshua Bloch")
-                .isbn("ISBN123")
+                .isbn("TEST-ISBN123")
                 .category("Programming")
                 .build();
 
         bookService.addBook(book);
     }
 
+    @AfterEach
+    void cleanup() {
+        // ISBNs are unique, so each test's book has to go before the next one adds its own
+        bookService.clearTestData();
+    }
+
     @Test
     void testSuccessfulBorrow() throws LibraryException {
         borrowService.borrowBook(student, book.getId());
@@ -154,10 +165,166 @@ class BorrowServiceTest {
         executor.shutdown();
     }
 
+    @Test
+    void testContendedCopyIsHeldByOneBorrowerAtATime() throws Exception {
+        int borrowers = 4;
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(borrowers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < borrowers; t++) {
+            Student borrower = new Student.StudentBuilder()
+                    .name("Contender " + t)
+                    .email("contender" + t + "@example.com")
+                    .password("1234".toCharArray())
+                    .borrowLimit(1)
+                    .build();
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    borrowService.borrowBook(borrower, book.getId());
+                    if (holders.incrementAndGet() > 1) overlaps.incrementAndGet();
+                    holders.decrementAndGet();
+                    borrowService.returnBook(borrower, book.getId());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) future.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(0, overlaps.get());
+        assertTrue(bookService.findById(book.getId()).isAvailable());
+    }
+
+    @Test
+    void testReturnedCopyIsServedFirstComeFirstServed() throws Exception {
+        borrowService.borrowBook(student, book.getId());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Student> waiters = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Student waiter = new Student.StudentBuilder()
+                    .name("Queued Student " + i)
+                    .email("queued" + i + "@example.com")
+                    .password("1234".toCharArray())
+                    .borrowLimit(1)
+                    .build();
+            waiters.add(waiter);
+            futures.add(executor.submit(() -> {
+                borrowService.borrowBook(waiter, book.getId());
+                return null;
+            }));
+            awaitWaiting(i + 1); // each one joins the queue before the next starts
+        }
+
+        borrowService.returnBook(student, book.getId());
+        futures.get(0).get(2, TimeUnit.SECONDS);
+        assertTrue(borrowService.getBorrowedBooks(waiters.get(0).getId()).contains(book.getId()));
+        assertFalse(futures.get(1).isDone(), "Only the oldest waiter gets the copy.");
 
+        borrowService.returnBook(waiters.get(0), book.getId());
+        futures.get(1).get(2, TimeUnit.SECONDS);
+        assertTrue(borrowService.getBorrowedBooks(waiters.get(1).getId()).contains(book.getId()));
 
+        borrowService.returnBook(waiters.get(1), book.getId());
+        assertEquals(0, borrowService.waitQueueCount());
+        executor.shutdown();
+    }
 
+    @Test
+    void testAsyncBorrowIsCompletedByTheReturn() throws Exception {
+        borrowService.borrowBook(student, book.getId());
+        Student another = new Student.StudentBuilder()
+                .name("Async Student")
+                .email("async@example.com")
+                .password("1234".toCharArray())
+                .borrowLimit(1)
+                .build();
 
+        CompletableFuture<Void> borrow = borrowService.borrowBookAsync(another, book.getId());
+        assertFalse(borrow.isDone());
 
+        borrowService.returnBook(student, book.getId());
+        borrow.get(2, TimeUnit.SECONDS);
+        assertTrue(borrowService.getBorrowedBooks(another.getId()).contains(book.getId()));
+    }
 
+    @Test
+    void testAsyncBorrowTimesOutOrIsCancelledWithoutKeepingItsPlace() throws Exception {
+        borrowService.borrowBook(student, book.getId());
+        Student another = new Student.StudentBuilder()
+                .name("Impatient Student")
+                .email("impatient@example.com")
+                .password("1234".toCharArray())
+                .borrowLimit(1)
+                .build();
+
+        CompletableFuture<Void> expiring = borrowService.borrowBookAsync(another, book.getId(), 100, TimeUnit.MILLISECONDS);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> expiring.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(BookUnavailableException.class, ex.getCause());
+
+        CompletableFuture<Void> cancelled = borrowService.borrowBookAsync(another, book.getId());
+        assertTrue(cancelled.cancel(false));
+        assertEquals(0, borrowService.waitQueueCount());
+
+        borrowService.returnBook(student, book.getId());
+        assertTrue(bookService.findById(book.getId()).isAvailable());
+        assertTrue(borrowService.getBorrowedBooks(another.getId()).isEmpty());
+    }
+
+    @Test
+    void testAsyncBorrowFailsFastForNonStudentsAndMissingBooks() {
+        Librarian librarian = new Librarian.LibrarianBuilder()
+                .name("Test Librarian")
+                .email("librarian@example.com")
+                .password("1234".toCharArray())
+                .employeeCode("EMP-TEST")
+                .build();
+        CompletableFuture<Void> notStudent = borrowService.borrowBookAsync(librarian, book.getId());
+        ExecutionException refused = assertThrows(ExecutionException.class, notStudent::get);
+        assertInstanceOf(LibraryException.class, refused.getCause());
+        assertEquals("Only students can borrow books.", refused.getCause().getMessage());
+        assertTrue(bookService.findById(book.getId()).isAvailable(), "A refused borrow leaves the copy alone.");
+
+        CompletableFuture<Void> missing = borrowService.borrowBookAsync(student, UUID.randomUUID().toString());
+        ExecutionException ex = assertThrows(ExecutionException.class, missing::get);
+        assertInstanceOf(BookNotFound.class, ex.getCause());
+    }
+
+    @Test
+    void testPendingBorrowsDoNotParkThreads() throws Exception {
+        borrowService.borrowBook(student, book.getId());
+        int pending = 2_000;
+        int threadsBefore = Thread.activeCount();
+
+        List<CompletableFuture<Void>> borrows = new ArrayList<>();
+        for (int i = 0; i < pending; i++) {
+            Student waiter = new Student.StudentBuilder()
+                    .name("Pending " + i)
+                    .email("pending" + i + "@example.com")
+                    .password("1234".toCharArray())
+                    .borrowLimit(1)
+                    .build();
+            borrows.add(borrowService.borrowBookAsync(waiter, book.getId(), 1, TimeUnit.MINUTES));
+        }
+        int threadsWaiting = Thread.activeCount();
+        // At most the shared timeout and journal threads may have started; no thread per waiting borrower
+        assertTrue(threadsWaiting - threadsBefore <= 2,
+                pending + " pending borrows took " + (threadsWaiting - threadsBefore) + " extra threads.");
+        assertEquals(pending, borrowService.waitingFor(book.getId()));
+
+        for (CompletableFuture<Void> borrow : borrows) borrow.cancel(false);
+        assertEquals(0, borrowService.waitQueueCount());
+        borrowService.returnBook(student, book.getId());
+        assertTrue(bookService.findById(book.getId()).isAvailable());
+    }
+
+    private void awaitWaiting(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (borrowService.waitingFor(book.getId()) < count) {
+            if (System.nanoTime() > deadline) fail("Expected " + count + " borrowers in the queue.");
+            Thread.sleep(1);
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.company.MultiModule.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanTableTest {
+
+    private final LoanTable loans = new LoanTable();
+
+    @Test
+    void testMatchesMapOfSetsUnderRandomChanges() {
+        Random random = new Random(5);
+        List<String> users = new ArrayList<>();
+        List<String> books = new ArrayList<>();
+        for (int i = 0; i < 300; i++) users.add(i % 3 == 0 ? "user-" + i : UUID.randomUUID().toString());
+        for (int i = 0; i < 1000; i++) books.add(i % 5 == 0 ? "book-" + i : UUID.randomUUID().toString());
+
+        Map<String, Set<String>> expected = new HashMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            String user = users.get(random.nextInt(users.size()));
+            String book = books.get(random.nextInt(books.size()));
+            Set<String> held = expected.computeIfAbsent(user, k -> new HashSet<>());
+            if (random.nextBoolean()) {
+                boolean added = held.size() < 4 || held.contains(book);
+                assertEquals(added, loans.tryAdd(user, book, 4));
+                if (added) held.add(book);
+            } else {
+                assertEquals(held.remove(book), loans.remove(user, book));
+            }
+            if (held.isEmpty()) expected.remove(user);
+        }
+
+        Map<String, Set<String>> actual = new HashMap<>();
+        loans.forEach((user, book) -> actual.computeIfAbsent(user, k -> new HashSet<>()).add(book));
+        assertEquals(expected, actual);
+        assertEquals(expected.values().stream().mapToInt(Set::size).sum(), loans.size());
+        for (String user : users) {
+            assertEquals(expected.getOrDefault(user, Set.of()), loans.booksOf(user));
+        }
+    }
+
+    @Test
+    void testUnknownIdsHaveNoLoans() {
+        assertFalse(loans.contains("nobody", UUID.randomUUID().toString()));
+        assertFalse(loans.remove(UUID.randomUUID().toString(), "nothing"));
+        assertTrue(loans.booksOf("nobody").isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package com.company.MultiModule.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceServiceTest {
+
+    private final PersistenceService persistence = PersistenceService.getInstance();
+
+    @Test
+    void testQueuedSavesForTheSameKeyAreCoalesced() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        persistence.submit("test-blocker", () -> {
+            writerBusy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Void> first = persistence.submit("test-books", runs::incrementAndGet);
+        CompletableFuture<Void> second = persistence.submit("test-books", runs::incrementAndGet);
+        CompletableFuture<Void> third = persistence.submit("test-books", runs::incrementAndGet);
+        assertFalse(first.isDone(), "The writer is still busy, so nothing should have run yet.");
+
+        release.countDown();
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+
+        assertSame(first, second);
+        assertSame(first, third);
+        assertEquals(1, runs.get(), "Three queued saves of one key should be written once.");
+    }
+
+    @Test
+    void testFailedSaveCompletesExceptionally() {
+        CompletableFuture<Void> save = persistence.submit("test-failing", () -> {
+            throw new IOException("disk full");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> save.get(5, TimeUnit.SECONDS));
+        assertEquals("disk full", e.getCause().getMessage());
+    }
+
+    @Test
+    void testShutdownWritesEverythingQueued() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Void> save = persistence.submit("test-shutdown", runs::incrementAndGet);
+
+        persistence.shutdown();
+
+        assertTrue(save.isDone());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testSubmitsDuringShutdownAreRefusedUntilTheWriterHasStopped() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> firstWriter = new AtomicReference<>();
+        persistence.submit("test-stopping-blocker", () -> {
+            firstWriter.set(Thread.currentThread());
+            writerBusy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+
+        Thread stopper = new Thread(persistence::shutdown);
+        stopper.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        // Waiting on the join means the shutdown has begun and queued its marker
+        while (stopper.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        CompletableFuture<Void> refused = persistence.submit("test-stopping", () -> {});
+        ExecutionException e = assertThrows(ExecutionException.class, refused::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+
+        release.countDown();
+        stopper.join(5_000);
+        assertFalse(firstWriter.get().isAlive(), "Shutdown returns only once the writer has stopped.");
+
+        AtomicReference<Thread> nextWriter = new AtomicReference<>();
+        persistence.saveNow("test-after-stop", () -> nextWriter.set(Thread.currentThread()));
+        assertNotSame(firstWriter.get(), nextWriter.get());
+    }
+
+    @Test
+    void testSaveNowRunsOnTheWriterAndReportsFailures() throws Exception {
+        AtomicReference<String> thread = new AtomicReference<>();
+        persistence.saveNow("test-now", () -> thread.set(Thread.currentThread().getName()));
+        assertEquals("persistence-writer", thread.get());
+
+        IOException e = assertThrows(IOException.class, () -> persistence.saveNow("test-now-failing", () -> {
+            throw new IOException("read-only");
+        }));
+        assertEquals("read-only", e.getMessage());
+
+        // A save that saves again from the writer thread must not wait on itself
+        AtomicInteger runs = new AtomicInteger();
+        persistence.saveNow("test-outer", () -> persistence.saveNow("test-inner", runs::incrementAndGet));
+        assertEquals(1, runs.get());
+    }
+}
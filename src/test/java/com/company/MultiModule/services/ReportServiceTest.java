@@ -5,7 +5,9 @@ import com.company.MultiModule.models.Student;
 import com.company.MultiModule.models.User;
 import org.junit.jupiter.api.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.*;
 import java.util.*;
 
@@ -62,4 +64,32 @@ public class ReportServiceTest {
         assertTrue(lines.size() >= 2, "Report should have header + user data.");
         assertTrue(lines.get(1).contains("Alice"));
     }
+
+    @Test
+    void testBookReportPrintsCatalogViewsThroughTheirGetters() {
+        BookService bookService = BookService.getInstance();
+        Book book = new Book.Builder<>()
+                .title("Refactoring")
+                .author("Martin Fowler")
+                .isbn("TEST-REPORT-1")
+                .category("Programming")
+                .build();
+        bookService.addBook(book);
+
+        PrintStream console = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true));
+        try {
+            reportService.generateBookReport(List.of(bookService.findById(book.getId())));
+        } finally {
+            System.setOut(console);
+            bookService.clearTestData();
+        }
+
+        String report = printed.toString();
+        assertTrue(report.contains("Class: Book"), report);
+        assertTrue(report.contains("Refactoring"), report);
+        assertTrue(report.contains("TEST-REPORT-1"), report);
+        assertFalse(report.contains("columns"), "Internals of the view stay out of the report.");
+    }
 }
@@ -0,0 +1,147 @@
+package com.company.MultiModule.services;
+
+import com.company.MultiModule.models.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationQueuesTest {
+
+    private final BookService bookService = BookService.getInstance();
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor();
+    private ReservationQueues reservations;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        reservations = new ReservationQueues(bookService, timeouts, Duration.ofMinutes(1));
+        book = new Book.Builder<>()
+                .title("Reserved")
+                .author("Queue Author")
+                .category("Queues")
+                .isbn("TEST-RESERVE")
+                .build();
+        bookService.addBook(book);
+        book = bookService.findById(book.getId());
+    }
+
+    @AfterEach
+    void cleanup() {
+        timeouts.shutdownNow();
+        bookService.clearTestData();
+    }
+
+    @Test
+    void testReturnedCopyGoesToOldestReservationOnly() {
+        assertTrue(bookService.tryClaim(book));
+        ReservationQueues.Reservation first = reservations.reserve("u1", book);
+        ReservationQueues.Reservation second = reservations.reserve("u2", book);
+        assertFalse(first.ready.isDone());
+
+        reservations.handOff(book);
+        assertTrue(first.ready.isDone());
+        assertFalse(second.ready.isDone());
+        assertFalse(bookService.isAvailable(book.getId()), "A handed-off copy never goes back on the shelf.");
+
+        reservations.handOff(book);
+        assertTrue(second.ready.isDone());
+        assertEquals(0, reservations.queueCount());
+
+        reservations.handOff(book);
+        assertTrue(bookService.isAvailable(book.getId()));
+    }
+
+    @Test
+    void testCancelledReservationPassesTheCopyOn() {
+        assertTrue(bookService.tryClaim(book));
+        ReservationQueues.Reservation gone = reservations.reserve("u1", book);
+        ReservationQueues.Reservation next = reservations.reserve("u2", book);
+
+        assertTrue(reservations.cancel(gone));
+        reservations.handOff(book);
+
+        assertTrue(next.ready.isDone());
+        assertFalse(reservations.cancel(next), "A reservation that has the copy cannot be withdrawn.");
+    }
+
+    @Test
+    void testReserveOnShelvedCopyIsReadyAtOnce() {
+        ReservationQueues.Reservation reservation = reservations.reserve("u1", book);
+
+        assertTrue(reservation.ready.isDone());
+        assertFalse(bookService.isAvailable(book.getId()));
+        assertEquals(0, reservations.queueCount());
+    }
+
+    @Test
+    void testRestoredReservationHoldsTheCopyForItsUser() {
+        assertTrue(bookService.tryClaim(book));
+        reservations.restore(book.getId(), "u1", false, 0);
+        reservations.restore(book.getId(), "u2", false, 0);
+        reservations.restore(book.getId(), "u1", false, 0);
+
+        List<String[]> rows = reservations.snapshot();
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{book.getId(), "u1", "waiting", "0"}, rows.get(0));
+
+        // Nobody is waiting on the restored reservation, so the copy is held for u1
+        reservations.handOff(book);
+        assertEquals(1, reservations.holdCount());
+        assertFalse(bookService.isAvailable(book.getId()));
+        assertFalse(reservations.reserve("u3", book).ready.isDone());
+
+        assertTrue(reservations.reserve("u1", book).ready.isDone());
+        assertEquals(0, reservations.holdCount());
+
+        // u2 picks up its restored place at the head of the queue
+        ReservationQueues.Reservation u2 = reservations.reserve("u2", book);
+        reservations.handOff(book);
+        assertTrue(u2.ready.isDone());
+    }
+
+    @Test
+    void testExpiredHoldPutsTheCopyBackOnTheShelf() throws Exception {
+        ReservationQueues shortHolds = new ReservationQueues(bookService, timeouts, Duration.ofMillis(50));
+        assertTrue(bookService.tryClaim(book));
+        shortHolds.restore(book.getId(), "u1", false, 0);
+
+        shortHolds.handOff(book);
+        assertEquals(1, shortHolds.holdCount());
+        assertFalse(bookService.isAvailable(book.getId()));
+
+        for (int i = 0; i < 200 && shortHolds.holdCount() > 0; i++) Thread.sleep(10);
+        assertEquals(0, shortHolds.holdCount());
+        assertTrue(bookService.isAvailable(book.getId()), "Nobody else waits, so the copy goes back on the shelf.");
+        assertTrue(shortHolds.snapshot().isEmpty());
+    }
+
+    @Test
+    void testHoldRestoredPastItsDeadlinePassesTheCopyToTheNextReservation() throws Exception {
+        assertTrue(bookService.tryClaim(book));
+        ReservationQueues.Reservation next = reservations.reserve("u2", book);
+        reservations.restore(book.getId(), "u1", true, System.currentTimeMillis() - 1);
+
+        assertNotNull(next.ready.get(2, TimeUnit.SECONDS));
+        assertEquals(0, reservations.holdCount());
+        assertFalse(bookService.isAvailable(book.getId()));
+    }
+
+    @Test
+    void testOnlyPersistentReservationsAreSaved() {
+        assertTrue(bookService.tryClaim(book));
+        reservations.reserve("blocking", book, false);
+        reservations.reserve("queued", book, true);
+
+        List<String[]> rows = reservations.snapshot();
+        assertEquals(1, rows.size());
+        assertEquals("queued", rows.get(0)[1]);
+    }
+}
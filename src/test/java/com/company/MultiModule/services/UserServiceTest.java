@@ -8,6 +8,8 @@ import org.junit.jupiter.api.*;
 
 import java.io.File;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -16,13 +18,12 @@ class UserServiceTest {
 
     private UserService userService;
     private static final String TEST_EMAIL = "csv@test.com";
+    // Users this test added; only these are removed afterwards
+    private final List<User> added = new ArrayList<>();
 
     @BeforeEach
     void setUp() {
         userService = UserService.getInstance();
-
-        // Clean old users
-        userService.getAllUsers().clear();
     }
 
     @AfterEach
@@ -33,18 +34,23 @@ class UserServiceTest {
             file.delete();
         }
 
-        userService.getAllUsers().clear();
+        for (User user : added) userService.getAllUsers().remove(user.getId());
+    }
+
+    private void addUser(User user) {
+        assertTrue(userService.addUser(user), "The test emails must not be taken.");
+        added.add(user);
     }
 
     @Test
     void testLoginSuccess() throws UserNotFound {
         Student student = new Student.StudentBuilder()
                 .name("sahil")
-                .email("sahil@student.com")
+                .email("login@student.com")
                 .password("pass123".toCharArray())
                 .borrowLimit(2)
                 .build();
-        userService.addUser(student);
+        addUser(student);
 
         User user = userService.login("sahil", "pass123".toCharArray());
         assertNotNull(user);
@@ -65,7 +71,7 @@ class UserServiceTest {
                 .borrowLimit(2)
                 .build();
 
-        userService.addUser(student);
+        addUser(student);
 
         User found = userService.findUserById(student.getId());
         assertEquals("Test Student", found.getName());
@@ -80,14 +86,14 @@ class UserServiceTest {
     void testFindByEmail() {
         Student student = new Student.StudentBuilder()
                 .name("Email Test")
-                .email("sahil@student.com")
+                .email("email@student.com")
                 .password("email123".toCharArray())
                 .borrowLimit(2)
                 .build();
 
-        userService.addUser(student);
+        addUser(student);
 
-        User user = userService.findByEmail("sahil@student.com");
+        User user = userService.findByEmail("email@student.com");
         assertNotNull(user);
         assertEquals("Email Test", user.getName());
     }
@@ -105,11 +111,10 @@ class UserServiceTest {
                 .password("123".toCharArray())
                 .borrowLimit(1)
                 .build();
-        userService.addUser(student);
+        addUser(student);
 
         Map<String, User> users = userService.getAllUsers();
-        assertFalse(users.isEmpty());
-        assertEquals(1, users.size());
+        assertSame(student, users.get(student.getId()));
     }
 
     @Test
@@ -121,19 +126,79 @@ class UserServiceTest {
                 .password("test123".toCharArray())
                 .borrowLimit(3)
                 .build();
-        userService.addUser(dummy);
+        addUser(dummy);
 
         // Save to CSV
         userService.saveToCsv();
         File file = new File("data/users.csv");
         assertTrue(file.exists(), "CSV file should exist");
 
-        // Clear in-memory and reload from file
-        userService.getAllUsers().clear();
+        // Drop it from memory and reload from file
+        userService.getAllUsers().remove(dummy.getId());
         userService.loadFromCsv();
 
         User loaded = userService.findByEmail(TEST_EMAIL);
         assertNotNull(loaded);
         assertEquals("CSV Test", loaded.getName());
     }
+
+    @Test
+    void testLoginIsCaseInsensitiveAndChecksEveryUserWithTheName() throws UserNotFound {
+        Student first = new Student.StudentBuilder()
+                .name("Alex")
+                .email("alex1@student.com")
+                .password("first".toCharArray())
+                .borrowLimit(1)
+                .build();
+        Student second = new Student.StudentBuilder()
+                .name("alex")
+                .email("alex2@student.com")
+                .password("second".toCharArray())
+                .borrowLimit(1)
+                .build();
+        addUser(first);
+        addUser(second);
+
+        assertEquals(second.getId(), userService.login("ALEX", "second".toCharArray()).getId());
+        assertEquals(first.getId(), userService.login("alex", "first".toCharArray()).getId());
+        assertThrows(UserNotFound.class, () -> userService.login("alex", "third".toCharArray()));
+        assertEquals(first.getId(), userService.findByEmail("ALEX1@Student.com").getId());
+    }
+
+    @Test
+    void testClearedUsersAreNotFoundThroughTheIndexes() {
+        Student student = new Student.StudentBuilder()
+                .name("Gone")
+                .email("gone@student.com")
+                .password("gone".toCharArray())
+                .borrowLimit(1)
+                .build();
+        addUser(student);
+
+        userService.getAllUsers().remove(student.getId());
+
+        assertThrows(UserNotFound.class, () -> userService.login("gone", "gone".toCharArray()));
+        assertNull(userService.findByEmail("gone@student.com"));
+    }
+
+    @Test
+    void testDuplicateEmailIsRejectedAndTheFirstAccountKeepsIt() throws UserNotFound {
+        Student first = new Student.StudentBuilder()
+                .name("First")
+                .email("shared@student.com")
+                .password("first".toCharArray())
+                .borrowLimit(1)
+                .build();
+        Student second = new Student.StudentBuilder()
+                .name("Second")
+                .email("SHARED@student.com")
+                .password("second".toCharArray())
+                .borrowLimit(1)
+                .build();
+        addUser(first);
+
+        assertFalse(userService.addUser(second));
+        assertSame(first, userService.findByEmail("shared@student.com"));
+        assertThrows(UserNotFound.class, () -> userService.findUserById(second.getId()));
+    }
 }